@@ -0,0 +1,278 @@
+package data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cette classe donne la distance dans le labyrinthe (nombre de deplacements) entre deux cases libres de la map,
+ * ainsi que la premiere case du plus court chemin de l'une vers l'autre.
+ * Les cases libres sont numerotees de 0 a nbLibres - 1. Pour les petites maps la table complete
+ * (nbLibres * nbLibres distances sur un short) est calculee a la construction ; pour les grandes maps
+ * chaque ligne de la table est calculee a la demande par un parcours en largeur et les lignes gardees (sur des short aussi)
+ * tiennent dans MAX_OCTETS_LIGNES.
+ *
+ * @inv numero.length == nbCases * nbCases
+ */
+public class Distances {
+
+	/** Distance renvoyee quand une des cases est un mur ou qu'il n'existe pas de chemin */
+	public static final int INFINI = Integer.MAX_VALUE;
+	/** Nombre maximal de distances de la table complete (8 Mo) */
+	private static final int MAX_TABLE = 1 << 22;
+	/** Taille maximale des lignes gardees quand les lignes sont calculees a la demande (8 Mo) */
+	private static final long MAX_OCTETS_LIGNES = 1L << 23;
+	/** Valeur d'une ligne calculee a la demande quand il n'y a pas de chemin (les distances y sont lues sans signe) */
+	private static final int PAS_DE_CHEMIN = 0xFFFF;
+
+	/** Le nombre de case de la map (sur une ligne) */
+	private final int nbCases;
+	/** Le nombre de cases libres */
+	private final int nbLibres;
+	/** Le numero de chaque case (ligne * nbCases + colonne) parmi les cases libres, -1 pour un mur */
+	private final int[] numero;
+	/** La case (ligne * nbCases + colonne) de chaque case libre */
+	private final int[] cases;
+	/** Les numeros des cases libres voisines de chaque case libre (numero * 4 + direction dans l'ordre haut, bas, gauche, droite), -1 si aucune */
+	private final int[] voisins;
+	/** La table complete : distance entre les cases libres i et j en i * nbLibres + j (-1 si pas de chemin), null pour une grande map */
+	private final short[] table;
+	/** Les lignes calculees a la demande pour une grande map, distances sans signe, PAS_DE_CHEMIN si pas de chemin (null pour une petite map) */
+	private final AtomicReferenceArray<short[]> lignes;
+	/** Les numeros des lignes gardees, dans l'ordre de leur calcul, au plus MAX_OCTETS_LIGNES / (nbLibres * 2) lignes */
+	private final int[] lignesGardees;
+	/** Le nombre de lignes calculees a la demande depuis la construction */
+	private int nbLignesCalculees;
+
+	/**
+	 * Construit la table a partir des cases libres de la map
+	 *
+	 * @param open open[i][j] vaut true si la case (i,j) n'est pas un mur
+	 * @pre open.length > 0 && open.length == open[0].length
+	 * @pre le nombre de cases libres est inferieur a PAS_DE_CHEMIN
+	 */
+	public Distances(boolean[][] open) {
+		this.nbCases = open.length;
+		this.numero = new int[this.nbCases * this.nbCases];
+		int libres = 0;
+		for (int i = 0; i < this.nbCases; i++) {
+			for (int j = 0; j < this.nbCases; j++) {
+				this.numero[i * this.nbCases + j] = open[i][j] ? libres++ : -1;
+			}
+		}
+		this.nbLibres = libres;
+		this.cases = new int[this.nbLibres];
+		this.voisins = new int[this.nbLibres * 4];
+		int[] deltaLigne = {-1, 1, 0, 0};
+		int[] deltaColonne = {0, 0, -1, 1};
+		for (int c = 0; c < this.numero.length; c++) {
+			int n = this.numero[c];
+			if (n >= 0) {
+				this.cases[n] = c;
+				for (int d = 0; d < 4; d++) {
+					int i = c / this.nbCases + deltaLigne[d];
+					int j = c % this.nbCases + deltaColonne[d];
+					this.voisins[n * 4 + d] = i < 0 || j < 0 || i >= this.nbCases || j >= this.nbCases ? -1 : this.numero[i * this.nbCases + j];
+				}
+			}
+		}
+		if ((long) this.nbLibres * this.nbLibres <= MAX_TABLE) {
+			this.table = new short[this.nbLibres * this.nbLibres];
+			int[] ligne = new int[this.nbLibres];
+			int[] file = new int[this.nbLibres];
+			for (int n = 0; n < this.nbLibres; n++) {
+				this.parcours(n, ligne, file);
+				for (int m = 0; m < this.nbLibres; m++) {
+					this.table[n * this.nbLibres + m] = (short) ligne[m];
+				}
+			}
+			this.lignes = null;
+			this.lignesGardees = null;
+		}
+		else {
+			this.table = null;
+			this.lignes = new AtomicReferenceArray<short[]>(this.nbLibres);
+			this.lignesGardees = new int[(int) Math.max(1, Math.min(this.nbLibres, MAX_OCTETS_LIGNES / (this.nbLibres * 2L)))];
+		}
+	}
+
+	/**
+	 * Calcule par un parcours en largeur la distance d'une case libre a toutes les autres
+	 *
+	 * @param depart le numero de la case de depart
+	 * @param ligne recoit la distance de chaque case libre (-1 si pas de chemin)
+	 * @param file tableau de travail de taille nbLibres
+	 */
+	private void parcours(int depart, int[] ligne, int[] file) {
+		Arrays.fill(ligne, -1);
+		ligne[depart] = 0;
+		file[0] = depart;
+		int debut = 0, fin = 1;
+		while (debut < fin) {
+			int n = file[debut++];
+			for (int d = 0; d < 4; d++) {
+				int v = this.voisins[n * 4 + d];
+				if (v >= 0 && ligne[v] < 0) {
+					ligne[v] = ligne[n] + 1;
+					file[fin++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renvoie la distance entre deux cases libres a partir de leurs numeros
+	 *
+	 * @param n le numero de la premiere case
+	 * @param m le numero de la seconde case
+	 * @return la distance, -1 si pas de chemin
+	 */
+	private int distanceLibres(int n, int m) {
+		if (this.table != null) {
+			return this.table[m * this.nbLibres + n];
+		}
+		int distance = this.ligne(m)[n] & 0xFFFF;
+		return distance == PAS_DE_CHEMIN ? -1 : distance;
+	}
+
+	/**
+	 * Renvoie une ligne de la table pour une grande map, en la calculant si elle n'est pas gardee
+	 *
+	 * @param m le numero de la case
+	 * @return la distance (sans signe, PAS_DE_CHEMIN si pas de chemin) de chaque case libre a la case m
+	 */
+	private short[] ligne(int m) {
+		short[] ligne = this.lignes.get(m);
+		if (ligne == null) {
+			int[] distances = new int[this.nbLibres];
+			this.parcours(m, distances, new int[this.nbLibres]);
+			ligne = new short[this.nbLibres];
+			for (int n = 0; n < this.nbLibres; n++) {
+				ligne[n] = (short) distances[n];//-1 devient PAS_DE_CHEMIN
+			}
+			synchronized (this) {
+				int place = this.nbLignesCalculees++ % this.lignesGardees.length;
+				if (this.nbLignesCalculees > this.lignesGardees.length) {
+					this.lignes.set(this.lignesGardees[place], null);
+				}
+				this.lignesGardees[place] = m;
+				this.lignes.set(m, ligne);
+			}
+		}
+		return ligne;
+	}
+
+	/**
+	 * Indique la distance dans le labyrinthe entre deux cases
+	 *
+	 * @param case1 la premiere case (ligne * nbCases + colonne)
+	 * @param case2 la seconde case (ligne * nbCases + colonne)
+	 * @return le nombre de deplacements du plus court chemin, INFINI si une des cases est un mur ou s'il n'y a pas de chemin
+	 */
+	public int distance(int case1, int case2) {
+		int n = this.numero[case1], m = this.numero[case2];
+		if (n < 0 || m < 0) {
+			return INFINI;
+		}
+		int distance = this.distanceLibres(n, m);
+		return distance < 0 ? INFINI : distance;
+	}
+
+	/**
+	 * Indique la distance dans le labyrinthe entre deux cases
+	 *
+	 * @param row1 la ligne de la premiere case
+	 * @param column1 la colonne de la premiere case
+	 * @param row2 la ligne de la seconde case
+	 * @param column2 la colonne de la seconde case
+	 * @return le nombre de deplacements du plus court chemin, INFINI si une des cases est un mur ou s'il n'y a pas de chemin
+	 */
+	public int distance(int row1, int column1, int row2, int column2) {
+		if (row1 < 0 || column1 < 0 || row2 < 0 || column2 < 0 || row1 >= this.nbCases || column1 >= this.nbCases || row2 >= this.nbCases || column2 >= this.nbCases) {
+			return INFINI;
+		}
+		return this.distance(row1 * this.nbCases + column1, row2 * this.nbCases + column2);
+	}
+
+	/**
+	 * Renvoie la case suivante sur un plus court chemin (en cas d'egalite : haut, bas, gauche puis droite)
+	 *
+	 * @param depart la case de depart (ligne * nbCases + colonne)
+	 * @param arrivee la case d'arrivee (ligne * nbCases + colonne)
+	 * @return la case voisine de depart la plus proche de arrivee, -1 si depart == arrivee ou s'il n'y a pas de chemin
+	 */
+	public int nextHop(int depart, int arrivee) {
+		int n = this.numero[depart], m = this.numero[arrivee];
+		if (n < 0 || m < 0 || n == m) {
+			return -1;
+		}
+		int distance = this.distanceLibres(n, m);
+		if (distance < 0) {
+			return -1;
+		}
+		for (int d = 0; d < 4; d++) {
+			int v = this.voisins[n * 4 + d];
+			if (v >= 0 && this.distanceLibres(v, m) == distance - 1) {
+				return this.cases[v];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Indique si la table complete a ete calculee (sinon les lignes sont calculees a la demande)
+	 *
+	 * @return true pour une petite map
+	 */
+	public boolean hasFullTable() {
+		return this.table != null;
+	}
+
+	/**
+	 * Getter pour le nombre de cases libres
+	 *
+	 * @return le nombre de cases libres
+	 */
+	public int getNbLibres() {
+		return this.nbLibres;
+	}
+
+	/**
+	 * Renvoie le numero d'une case parmi les cases libres
+	 *
+	 * @param c la case (ligne * nbCases + colonne)
+	 * @return le numero de la case, -1 pour un mur
+	 */
+	public int numero(int c) {
+		return this.numero[c];
+	}
+
+	/**
+	 * Renvoie la case correspondant a un numero de case libre
+	 *
+	 * @param n le numero de la case libre
+	 * @return la case (ligne * nbCases + colonne)
+	 */
+	public int caseLibre(int n) {
+		return this.cases[n];
+	}
+
+	/**
+	 * Renvoie le numero d'une case libre voisine
+	 *
+	 * @param n le numero de la case libre
+	 * @param d la direction (0 haut, 1 bas, 2 gauche, 3 droite)
+	 * @return le numero de la case voisine, -1 si c'est un mur ou si on sort de la map
+	 */
+	int voisin(int n, int d) {
+		return this.voisins[n * 4 + d];
+	}
+
+	/**
+	 * Getter pour le nombre de cases de la map
+	 *
+	 * @return Le nombre de case
+	 */
+	public int getNbCases() {
+		return this.nbCases;
+	}
+}
@@ -0,0 +1,126 @@
+package data;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cette classe donne la zone d'influence d'un fantome : les cases libres qu'il peut atteindre en quelques deplacements
+ * (distance dans le labyrinthe, les murs sont respectes) et leur distance au fantome.
+ * La zone de chaque case est calculee par un parcours en largeur borne la premiere fois qu'elle est demandee
+ * puis gardee pour tout le niveau. Les zones peuvent etre demandees par plusieurs threads a la fois.
+ */
+public class GhostInfluence {
+
+	/** La table des cases libres de la map */
+	private final Distances distances;
+	/** La distance maximale d'une case de la zone au fantome */
+	private final int portee;
+	/** La zone de chaque case libre : les numeros de ses cases libres par distance croissante, puis leur distance ; null si pas encore calculee */
+	private final AtomicReferenceArray<int[][]> zones;
+	/** La distance de chaque case atteinte par le parcours courant */
+	private final int[] distance;
+	/** Le numero du parcours ou chaque case a ete atteinte */
+	private final int[] marque;
+	/** La file du parcours en largeur */
+	private final int[] file;
+	/** Le numero du parcours courant */
+	private int parcours;
+
+	/**
+	 * Construit les zones (vides) d'une map
+	 *
+	 * @param distances la table des cases libres de la map
+	 * @param portee la distance maximale d'une case de la zone au fantome
+	 * @pre portee >= 0
+	 */
+	public GhostInfluence(Distances distances, int portee) {
+		this.distances = distances;
+		this.portee = portee;
+		int nbLibres = distances.getNbLibres();
+		this.zones = new AtomicReferenceArray<int[][]>(nbLibres);
+		this.distance = new int[nbLibres];
+		this.marque = new int[nbLibres];
+		this.file = new int[nbLibres];
+	}
+
+	/**
+	 * Renvoie les cases de la zone d'un fantome
+	 *
+	 * @param n le numero de la case libre du fantome
+	 * @return les numeros des cases libres a au plus la portee du fantome, la sienne en premier (tableau partage, a ne pas modifier)
+	 */
+	public int[] getCells(int n) {
+		return this.zone(n)[0];
+	}
+
+	/**
+	 * Renvoie la distance au fantome des cases de sa zone
+	 *
+	 * @param n le numero de la case libre du fantome
+	 * @return la distance de chaque case de getCells(n), dans le meme ordre (tableau partage, a ne pas modifier)
+	 */
+	public int[] getDistances(int n) {
+		return this.zone(n)[1];
+	}
+
+	/**
+	 * Indique la distance maximale d'une case de la zone au fantome
+	 *
+	 * @return la portee des zones
+	 */
+	public int getPortee() {
+		return this.portee;
+	}
+
+	/**
+	 * Renvoie la zone d'une case libre, en la calculant si elle ne l'a pas encore ete
+	 *
+	 * @param n le numero de la case libre
+	 * @return les cases de la zone et leur distance
+	 */
+	private int[][] zone(int n) {
+		int[][] zone = this.zones.get(n);
+		if (zone == null) {
+			synchronized (this) {
+				zone = this.zones.get(n);
+				if (zone == null) {
+					zone = this.calculer(n);
+					this.zones.set(n, zone);
+				}
+			}
+		}
+		return zone;
+	}
+
+	/**
+	 * Calcule la zone d'une case libre par un parcours en largeur arrete a la portee
+	 *
+	 * @param depart le numero de la case libre du fantome
+	 * @return les cases de la zone et leur distance
+	 */
+	private int[][] calculer(int depart) {
+		this.parcours++;
+		this.marque[depart] = this.parcours;
+		this.distance[depart] = 0;
+		this.file[0] = depart;
+		int debut = 0, fin = 1;
+		while (debut < fin) {
+			int n = this.file[debut++];
+			if (this.distance[n] < this.portee) {
+				for (int d = 0; d < 4; d++) {
+					int v = this.distances.voisin(n, d);
+					if (v >= 0 && this.marque[v] != this.parcours) {
+						this.marque[v] = this.parcours;
+						this.distance[v] = this.distance[n] + 1;
+						this.file[fin++] = v;
+					}
+				}
+			}
+		}
+		int[] zone = new int[fin], distancesZone = new int[fin];
+		for (int i = 0; i < fin; i++) {
+			zone[i] = this.file[i];
+			distancesZone[i] = this.distance[this.file[i]];
+		}
+		return new int[][] {zone, distancesZone};
+	}
+}
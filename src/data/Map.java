@@ -1,12 +1,12 @@
 package data;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 
 import logic.PacManLauncher;
 import logic.Pacman;
 import logic.BeliefState;
+import logic.LevelContext;
 import view.*;
 
 
@@ -40,9 +40,13 @@ public class Map {
 	private int nbrGomme;
 	/** La position sur la map de chaque fantôme en début de niveau : Un liste de couple (x,y) */
 	private ArrayList<int[]> ghosts;
-	/** Paires cases visibles */
-	private HashSet<String> visible;
+	/** Index des cases visibles entre elles */
+	private Visibility visible;
+	/** Distances dans le labyrinthe entre les cases */
+	private Distances distances;
 	private PacManLauncher pml;
+	/** Les donnees du niveau partagees par tous les etats (BeliefState) du niveau */
+	private LevelContext level;
 	private BeliefState state;
 	private ArrayList<BeliefState> visibleBeliefState;
 	private ArrayList<int[]> gamePositions;
@@ -54,6 +58,23 @@ public class Map {
 	 * @pre mapNumber > 0
 	 */
 	public Map(int mapNumber, PacManLauncher pml) {
+		this(mapNumber, pml, pml.getPacman() != null? pml.getPacman().getScore(): 0, pml.getPacman() != null? pml.getPacman().getLife(): Pacman.LIFE_START, pml.getPalier());
+	}
+
+	/**
+	 * Constructeur d'un niveau joue sans fenetre ni PacManLauncher (simulation sans affichage)
+	 *
+	 * @param mapNumber le numéro de la map a charger
+	 * @param score le score de Pacman au debut du niveau
+	 * @param life le nombre de vies de Pacman au debut du niveau
+	 * @param palier le score auquel Pacman gagne sa prochaine vie
+	 * @pre mapNumber > 0
+	 */
+	public Map(int mapNumber, int score, int life, int palier) {
+		this(mapNumber, null, score, life, palier);
+	}
+
+	private Map(int mapNumber, PacManLauncher pml, int score, int life, int palier) {
 		this.pml = pml;
 		assert mapNumber > 0 : "Precondition non respectée : numéro de la map négatif";
 		this.mapFile = "./doc/map"+ mapNumber +".map";
@@ -61,7 +82,7 @@ public class Map {
 		this.ghosts = new ArrayList<int[]>();
 		this.visibleBeliefState = new ArrayList<BeliefState>();
 		this.gamePositions = new ArrayList<int[]>();
-		this.createMap();
+		this.createMap(score, life, palier);
 		this.invariant();
 	}
 
@@ -79,12 +100,15 @@ public class Map {
 	/**
 	 * Cette fonction est appellée par le constructeur afin de lire le fichier .map et d'initialiser tout les parametres
 	 *
+	 * @param score le score de Pacman au debut du niveau
+	 * @param life le nombre de vies de Pacman au debut du niveau
+	 * @param palier le score auquel Pacman gagne sa prochaine vie
 	 * @post nbrGomme > 0
 	 * @post pacmanX > 0
 	 * @post pacmanY > 0
 	 * @post couleurMur == "blue" || couleurMur == "green" || couleurMur == "pink"
 	 */
-	private void createMap(){
+	private void createMap(int score, int life, int palier){
 		try{
 			// Ouverture du fichier pour la lecture
 			InputStream ips=new FileInputStream(this.mapFile);
@@ -94,6 +118,8 @@ public class Map {
 			boolean firstLine = true;        // La premiere ligne contient des parametres spéciaux
 			String ligne;                    // La ligne suivante à lire
 			int i = 0;                       // La ligne de la map
+			boolean[][] open = null;         // Les cases qui ne sont pas des murs
+			char[][] cases = null;           // Le contenu de chaque case, donne a l'etat une fois le niveau construit
  
 			
 			// On lit toute les lignes du fichier
@@ -106,8 +132,8 @@ public class Map {
 					this.tailleCase = this.WIDTH / this.nbCases;
 					this.couleurMur = param[1];
 					this.theMap = new MapGenerate(this.nbCases);
-					this.visible = new HashSet<String>();
-					this.state = new BeliefState(this.nbCases, this.pml.getPacman() != null? this.pml.getPacman().getScore(): 0, this.pml.getPacman() != null? this.pml.getPacman().getLife(): Pacman.LIFE_START);
+					open = new boolean[this.nbCases][this.nbCases];
+					cases = new char[this.nbCases][this.nbCases];
 				}
 				else {
 					int j = 0;                   // La colonne de la map
@@ -127,38 +153,20 @@ public class Map {
 						case "." :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy, false));
 							this.nbrGomme += 1;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							open[i][j] = true;
 							int [] pos1 = {i,j};
 							this.gamePositions.add(pos1);
 							break;
 						case "*" :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy, true));
 							this.nbrGomme += 1;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							open[i][j] = true;
 							int [] pos2 = {i,j};
 							this.gamePositions.add(pos2);
 							break;
 						case "O" :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy));
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							open[i][j] = true;
 							int [] pos3 = {i,j};
 							this.gamePositions.add(pos3);
 							break;
@@ -166,13 +174,7 @@ public class Map {
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy));
 							this.pacmanX = tmpx;
 							this.pacmanY = tmpy;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							open[i][j] = true;
 							int [] pos4 = {i,j};
 							this.gamePositions.add(pos4);
 							break;
@@ -182,24 +184,29 @@ public class Map {
 							posGhost[0] = tmpx;
 							posGhost[1] = tmpy;
 							this.ghosts.add(posGhost);
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							open[i][j] = true;
 							int [] pos5 = {i,j};
 							this.gamePositions.add(pos5);
 							break;
 						}
-						this.state.modifyMap(i, j, str.charAt(0));
+						cases[i][j] = str.charAt(0);
 						j++;
 					}
 					i++;
 				}
 			}
 			br.close();
+			this.visible = new Visibility(open);
+			this.distances = new Distances(open);
+			this.level = new LevelContext(this.nbCases, this.tailleCase, this.pacmanX, this.pacmanY, this.ghosts, this.gamePositions, this.visible, this.distances);
+			this.state = new BeliefState(this.level, score, life, palier);
+			for (i = 0; i < this.nbCases; i++) {
+				for (int j = 0; j < this.nbCases; j++) {
+					if (cases[i][j] != 0) {
+						this.state.modifyMap(i, j, cases[i][j]);
+					}
+				}
+			}
 		}
 		catch (Exception e){
 			System.out.println(e.toString());
@@ -210,7 +217,6 @@ public class Map {
 		assert couleurMur == "blue" || couleurMur == "green" || couleurMur == "pink" : "Post condition non respectée : Mauvaise couleur de mur";
 
 		this.invariant();
-		BeliefState.setStaticVariables(this.gamePositions, this.visible, this.pacmanX, this.pacmanY, this.ghosts, this.tailleCase, this.nbCases);
 		this.visibleBeliefState.add(new BeliefState(this.state, false));
 	}
 	
@@ -298,18 +304,36 @@ public class Map {
 	}
 	
 	public boolean isVisible(int row1, int column1, int row2, int column2) {
-		//System.out.println("isVisible " + row1 + "," + column1 + ";" + row2 + "," + column2);
-		if(row1 == row2) {
-			//System.out.println("row " + row1 + " columns " + column1 + "," + column2);
-			return this.visible.contains(row1+","+Math.min(column1,column2)+";"+row2+","+Math.max(column1, column2));
-		}
-		if(column1 == column2) {
-			//System.out.println("column " + column1 + " rows " + row1 + "," + row2);
-			return this.visible.contains(Math.min(row1, row2)+","+column1+";"+Math.max(row1, row2)+","+column2);
-		}
-		return false;
+		return this.visible.isVisible(row1, column1, row2, column2);
+	}
+
+	/**
+	 * Getter pour l'index des cases visibles
+	 *
+	 * @return l'index des cases visibles
+	 */
+	public Visibility getVisibility() {
+		return this.visible;
+	}
+
+	/**
+	 * Getter pour la table des distances entre les cases
+	 *
+	 * @return la table des distances
+	 */
+	public Distances getDistances() {
+		return this.distances;
 	}
 	
+	/**
+	 * Getter pour les donnees du niveau partagees par tous les etats
+	 *
+	 * @return le contexte du niveau
+	 */
+	public LevelContext getLevel() {
+		return this.level;
+	}
+
 	public PacManLauncher getPml() {
 		return this.pml;
 	}
@@ -0,0 +1,196 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Cette classe cherche un plus court chemin entre deux cases de la map avec l'algorithme A*
+ * (cout g du depart plus distance de Manhattan h jusqu'a l'arrivee).
+ * Tous les tableaux de travail (tas binaire de la liste ouverte, couts, parents) sont alloues une fois a la construction :
+ * une recherche n'alloue rien. Un objet ne doit etre utilise que par un seul thread a la fois.
+ *
+ * @inv cout.length == parent.length == marque.length == distances.getNbLibres()
+ */
+public class PathFinder {
+
+	/** La table des cases libres de la map */
+	private final Distances distances;
+	/** La ligne et la colonne de chaque case libre */
+	private final int[] ligne, colonne;
+	/** Le cout (nombre de deplacements depuis le depart) de chaque case libre atteinte */
+	private final int[] cout;
+	/** La case libre precedente sur le chemin de chaque case libre atteinte */
+	private final int[] parent;
+	/** Le numero de la recherche ou chaque case a ete atteinte (les cases atteintes lors d'une recherche precedente sont ignorees) */
+	private final int[] marque;
+	/** Le numero de la recherche ou chaque case a ete fermee */
+	private final int[] ferme;
+	/** La liste ouverte : tas binaire de (f << 32 | numero de la case) */
+	private final long[] tas;
+	/** Le chemin trouve par la derniere recherche (cases ligne * nbCases + colonne, du depart a l'arrivee) */
+	private final int[] chemin;
+	/** Le numero de la recherche courante */
+	private int recherche;
+
+	/**
+	 * Construit les tableaux de travail pour une map
+	 *
+	 * @param distances la table des cases libres de la map
+	 */
+	public PathFinder(Distances distances) {
+		this.distances = distances;
+		int nbLibres = distances.getNbLibres();
+		this.ligne = new int[nbLibres];
+		this.colonne = new int[nbLibres];
+		for (int n = 0; n < nbLibres; n++) {
+			this.ligne[n] = distances.caseLibre(n) / distances.getNbCases();
+			this.colonne[n] = distances.caseLibre(n) % distances.getNbCases();
+		}
+		this.cout = new int[nbLibres];
+		this.parent = new int[nbLibres];
+		this.marque = new int[nbLibres];
+		this.ferme = new int[nbLibres];
+		this.tas = new long[nbLibres * 4 + 1];
+		this.chemin = new int[nbLibres];
+	}
+
+	/**
+	 * Cherche un plus court chemin entre deux cases
+	 *
+	 * @param depart la case de depart (ligne * nbCases + colonne)
+	 * @param arrivee la case d'arrivee (ligne * nbCases + colonne)
+	 * @return le nombre de cases du chemin (depart et arrivee compris), 0 si une des cases est un mur ou s'il n'y a pas de chemin
+	 */
+	public int findPath(int depart, int arrivee) {
+		int n = this.distances.numero(depart), but = this.distances.numero(arrivee);
+		if (n < 0 || but < 0) {
+			return 0;
+		}
+		if (++this.recherche == 0) {
+			// le compteur a fait le tour : on efface les marques
+			Arrays.fill(this.marque, 0);
+			Arrays.fill(this.ferme, 0);
+			this.recherche = 1;
+		}
+		this.atteindre(n, 0, -1);
+		int taille = this.ajouter(0, this.heuristique(n, but), n);
+		while (taille > 0) {
+			long min = this.tas[0];
+			taille = this.retirer(taille);
+			int courant = (int) min;
+			if (this.ferme[courant] == this.recherche) {
+				continue;
+			}
+			this.ferme[courant] = this.recherche;
+			if (courant == but) {
+				return this.construireChemin(but);
+			}
+			int g = this.cout[courant] + 1;
+			for (int d = 0; d < 4; d++) {
+				int v = this.distances.voisin(courant, d);
+				if (v >= 0 && this.ferme[v] != this.recherche && (this.marque[v] != this.recherche || g < this.cout[v])) {
+					this.atteindre(v, g, courant);
+					taille = this.ajouter(taille, g + this.heuristique(v, but), v);
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Getter pour une case du chemin trouve par la derniere recherche
+	 *
+	 * @param i l'indice de la case dans le chemin (0 pour le depart)
+	 * @return la case (ligne * nbCases + colonne)
+	 * @pre 0 <= i < findPath(...)
+	 */
+	public int getPathCell(int i) {
+		return this.chemin[i];
+	}
+
+	/**
+	 * Indique si l'objet a ete construit pour une table donnee
+	 *
+	 * @param distances la table des cases libres d'une map
+	 * @return true si les recherches se font sur cette map
+	 */
+	public boolean isFor(Distances distances) {
+		return this.distances == distances;
+	}
+
+	private void atteindre(int n, int g, int precedent) {
+		this.marque[n] = this.recherche;
+		this.cout[n] = g;
+		this.parent[n] = precedent;
+	}
+
+	private int heuristique(int n, int but) {
+		return Math.abs(this.ligne[n] - this.ligne[but]) + Math.abs(this.colonne[n] - this.colonne[but]);
+	}
+
+	/**
+	 * Remonte les parents depuis l'arrivee pour remplir le chemin
+	 *
+	 * @param but le numero de la case d'arrivee
+	 * @return le nombre de cases du chemin
+	 */
+	private int construireChemin(int but) {
+		int longueur = this.cout[but] + 1;
+		int n = but;
+		for (int i = longueur - 1; i >= 0; i--) {
+			this.chemin[i] = this.distances.caseLibre(n);
+			n = this.parent[n];
+		}
+		return longueur;
+	}
+
+	/**
+	 * Ajoute une case dans le tas
+	 *
+	 * @param taille le nombre d'elements du tas
+	 * @param f la priorite de la case (g + h)
+	 * @param n le numero de la case
+	 * @return le nouveau nombre d'elements du tas
+	 */
+	private int ajouter(int taille, int f, int n) {
+		long element = ((long) f << 32) | n;
+		int i = taille;
+		while (i > 0) {
+			int pere = (i - 1) >> 1;
+			if (this.tas[pere] <= element) {
+				break;
+			}
+			this.tas[i] = this.tas[pere];
+			i = pere;
+		}
+		this.tas[i] = element;
+		return taille + 1;
+	}
+
+	/**
+	 * Retire le plus petit element du tas
+	 *
+	 * @param taille le nombre d'elements du tas
+	 * @return le nouveau nombre d'elements du tas
+	 */
+	private int retirer(int taille) {
+		taille--;
+		long element = this.tas[taille];
+		int i = 0;
+		while (true) {
+			int fils = 2 * i + 1;
+			if (fils >= taille) {
+				break;
+			}
+			if (fils + 1 < taille && this.tas[fils + 1] < this.tas[fils]) {
+				fils++;
+			}
+			if (element <= this.tas[fils]) {
+				break;
+			}
+			this.tas[i] = this.tas[fils];
+			i = fils;
+		}
+		this.tas[i] = element;
+		return taille;
+	}
+}
@@ -0,0 +1,91 @@
+package data;
+
+/**
+ * Cette classe indique quelles cases de la map sont visibles entre elles.
+ * Chaque case libre recoit un numero de segment horizontal et un numero de segment vertical
+ * (un segment est une suite de cases libres sur une meme ligne ou une meme colonne, sans mur entre elles).
+ * Deux cases sont visibles si elles appartiennent au meme segment.
+ *
+ * @inv horizontal.length == vertical.length == nbCases * nbCases
+ */
+public class Visibility {
+
+	/** Le nombre de case de la map (sur une ligne) */
+	private final int nbCases;
+	/** Le numero du segment horizontal de chaque case (ligne * nbCases + colonne), -1 pour un mur */
+	private final int[] horizontal;
+	/** Le numero du segment vertical de chaque case (ligne * nbCases + colonne), -1 pour un mur */
+	private final int[] vertical;
+
+	/**
+	 * Construit l'index a partir des cases libres de la map
+	 *
+	 * @param open open[i][j] vaut true si la case (i,j) n'est pas un mur
+	 * @pre open.length > 0 && open.length == open[0].length
+	 */
+	public Visibility(boolean[][] open) {
+		this.nbCases = open.length;
+		this.horizontal = new int[this.nbCases * this.nbCases];
+		this.vertical = new int[this.nbCases * this.nbCases];
+		int segment = 0;
+		for (int i = 0; i < this.nbCases; i++) {
+			for (int j = 0; j < this.nbCases; j++) {
+				if (!open[i][j]) {
+					this.horizontal[i * this.nbCases + j] = -1;
+				}
+				else {
+					if (j == 0 || !open[i][j - 1]) {
+						segment++;
+					}
+					this.horizontal[i * this.nbCases + j] = segment;
+				}
+			}
+		}
+		for (int j = 0; j < this.nbCases; j++) {
+			for (int i = 0; i < this.nbCases; i++) {
+				if (!open[i][j]) {
+					this.vertical[i * this.nbCases + j] = -1;
+				}
+				else {
+					if (i == 0 || !open[i - 1][j]) {
+						segment++;
+					}
+					this.vertical[i * this.nbCases + j] = segment;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indique si deux cases sont visibles l'une depuis l'autre
+	 *
+	 * @param row1 la ligne de la premiere case
+	 * @param column1 la colonne de la premiere case
+	 * @param row2 la ligne de la seconde case
+	 * @param column2 la colonne de la seconde case
+	 * @return true si les deux cases sont sur le meme segment
+	 */
+	public boolean isVisible(int row1, int column1, int row2, int column2) {
+		if (row1 < 0 || column1 < 0 || row2 < 0 || column2 < 0 || row1 >= this.nbCases || column1 >= this.nbCases || row2 >= this.nbCases || column2 >= this.nbCases) {
+			return false;
+		}
+		int cell1 = row1 * this.nbCases + column1;
+		int cell2 = row2 * this.nbCases + column2;
+		if (row1 == row2) {
+			return this.horizontal[cell1] != -1 && this.horizontal[cell1] == this.horizontal[cell2];
+		}
+		if (column1 == column2) {
+			return this.vertical[cell1] != -1 && this.vertical[cell1] == this.vertical[cell2];
+		}
+		return false;
+	}
+
+	/**
+	 * Getter pour le nombre de cases de la map
+	 *
+	 * @return Le nombre de case
+	 */
+	public int getNbCases() {
+		return this.nbCases;
+	}
+}
@@ -1,124 +1,16 @@
 package logic;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.PriorityQueue;
+import java.util.List;
 import java.util.Random;
-import java.util.TreeSet;
 
 import view.Gomme;
 import data.*;
 
-/**
- * class used to represent plan. It will provide for a given set of results an
- * action to perform in each result
- */
-class Plans {
-	ArrayList<Result> results;
-	ArrayList<ArrayList<String>> actions;
-
-	/**
-	 * construct an empty plan
-	 */
-	public Plans() {
-		this.results = new ArrayList<Result>();
-		this.actions = new ArrayList<ArrayList<String>>();
-	}
-
-	/**
-	 * add a new pair of belief-state and corresponding (equivalent) actions
-	 *
-	 * @param beliefBeliefState the belief state to add
-	 * @param action            a list of alternative actions to perform. Only one
-	 *                          of them is chosen but their results should be
-	 *                          similar
-	 */
-	public void addPlan(Result beliefBeliefState, ArrayList<String> action) {
-		this.results.add(beliefBeliefState);
-		this.actions.add(action);
-	}
-
-	/**
-	 * return the number of belief-states/actions pairs
-	 *
-	 * @return the number of belief-states/actions pairs
-	 */
-	public int size() {
-		return this.results.size();
-	}
-
-	/**
-	 * return one of the belief-state of the plan
-	 *
-	 * @param index index of the belief-state
-	 * @return the belief-state corresponding to the index
-	 */
-	public Result getResult(int index) {
-		return this.results.get(index);
-	}
-
-	/**
-	 * return the list of actions performed for a given belief-state
-	 *
-	 * @param index index of the belief-state
-	 * @return the set of actions to perform for the belief-state corresponding to
-	 *         the index
-	 */
-	public ArrayList<String> getAction(int index) {
-		return this.actions.get(index);
-	}
-}
-
-/**
- * class used to represent a transition function i.e., a set of possible belief
- * states the agent may be in after performing an action
- */
-class Result {
-	private ArrayList<BeliefState> beliefStates;
-
-	/**
-	 * construct a new result
-	 *
-	 * @param states the set of states corresponding to the new belief state
-	 */
-	public Result(ArrayList<BeliefState> states) {
-		this.beliefStates = states;
-	}
-
-	/**
-	 * returns the number of belief states
-	 *
-	 * @return the number of belief states
-	 */
-	public int size() {
-		return this.beliefStates.size();
-	}
-
-	/**
-	 * return one of the belief state
-	 *
-	 * @param index the index of the belief state to return
-	 * @return the belief state to return
-	 */
-	public BeliefState getBeliefState(int index) {
-		return this.beliefStates.get(index);
-	}
-
-	/**
-	 * return the list of belief-states
-	 *
-	 * @return the list of belief-states
-	 */
-	public ArrayList<BeliefState> getBeliefStates() {
-		return this.beliefStates;
-	}
-}
-
 /**
  * class implement the AI to choose the next move of the Pacman
  */
-public class AI {
+public class AI implements PacmanPolicy {
 	/**
 	 * function that compute the next action to do (among UP, DOWN, LEFT, RIGHT)
 	 *
@@ -131,17 +23,6 @@ public class AI {
 
 	/* Partie Générale */
 
-	/**
-	 * Calculates the Manhattan distance between two positions.
-	 *
-	 * @param pos1 The first position.
-	 * @param pos2 The second position.
-	 * @return The Manhattan distance between the two positions.
-	 */
-	private static int calculateDistanceMan(Position pos1, Position pos2) {
-		return Math.abs(pos1.x - pos2.x) + Math.abs(pos1.y - pos2.y);
-	}
-
 	/**
 	 * Checks if the next move of PacMan is valid ie it is not a wall.
 	 *
@@ -181,41 +62,14 @@ public class AI {
 	}
 
 	/**
-	 * Finds the position of the closest gomme.
+	 * Finds the position of the closest gomme (in distance in the maze), by
+	 * following the distance field of the gommes kept by the belief state.
 	 *
 	 * @param beliefState The current belief state of the agent.
-	 * @return The position of the closest gomme.
+	 * @return The position of the closest gomme, null if no gomme can be reached.
 	 */
 	private static Position findClosestGomme(BeliefState beliefState) {
-		// clone la position actuelle du PacMan à partir du BeliefState
-		Position pacmanPosition = beliefState.getPacmanPos().clone();
-		// Liste pour avoir toutes les positions des gommes dans la map actuelle
-		ArrayList<Position> gommes = new ArrayList<>();
-		// Collecte toutes les positions des gommes
-		for (int x = 2; x < 25; x++) {
-			for (int y = 2; y < 25; y++) {
-				// '.' représente une gomme '*' une super gomme
-				if (beliefState.getMap(x, y) == '.' || beliefState.getMap(x, y) == '*') {
-					gommes.add(new Position(x, y, 'U'));
-				}
-			}
-		}
-		// Recherche de la gomme la plus proche en utilisant l'algorithme A*
-		Position closestGomme = null; // stocke la position de la gomme la plus proche
-		int min_distance = Integer.MAX_VALUE; // stocke la distance minimale trouvée jusqu'à présent
-		for (Position gommePos : gommes) {
-			// Utilisez l'algorithme A* pour calculer le coût total du chemin jusqu'à cette
-			// gomme
-			// calcule la distance de Manhattan entre la position du PacMan et la position
-			// de la gomme
-			int min_dis = calculateDistanceMan(gommePos, pacmanPosition);
-
-			if (min_dis < min_distance) {
-				closestGomme = gommePos;
-				min_distance = min_dis;
-			}
-		}
-		return closestGomme;
+		return beliefState.getClosestGum();
 	}
 
 	/**
@@ -247,404 +101,435 @@ public class AI {
 	}
 
 	/**
-	 * Modifies the risk level at a specific position in the risk grid.
+	 * Applies the risk of a possible cell of a ghost: the risk of the cells the
+	 * ghost can reach in a few moves (open cells only, walls are never part of
+	 * the zone), decreasing with the distance in the maze. The zone of each cell is
+	 * computed once per level and shared by the games of the level (LevelContext).
 	 *
-	 * @param x         The index of the row in the risk grid.
-	 * @param y         The index of the column in the risk grid.
-	 * @param riskValue The value of the risk to be added.
-	 * @param nb_pos    The number of potential positions for one of the ghosts
+	 * @param open      The open cell of the potential ghost around which to apply
+	 *                  the risk.
+	 * @param weight    The probability of the ghost to be on the cell (used to
+	 *                  adjust the risk).
 	 */
-	private static void updateRiskAtPosition(int x, int y, int riskValue, int nb_pos) {
-		if (x >= 0 && x < RiskCount.length && y >= 0 && y < RiskCount[x].length) {
-			RiskCount[x][y] += riskValue / nb_pos;
+	private void applyRiskPattern(int open, double weight) {
+		GhostInfluence influence = this.level.getGhostInfluence();
+		int[] cells = influence.getCells(open);
+		int[] distances = influence.getDistances(open);
+		for (int i = 0; i < cells.length; i++) {
+			this.addRisk(cells[i], GHOST_RISK[distances[i]] * weight);
 		}
 	}
 
 	/**
-	 * Applies a specific risk pattern around a given position of a ghost.
+	 * Updates the risk grid based on the position of the ghosts in one of the
+	 * belief states.
 	 *
-	 * @param pos    The position of the potential ghost around which to apply the
-	 *               risk pattern.
-	 * @param nb_pos The number of potential positions of the ghost (used to adjust
-	 *               the risk).
-	 * @param init   Boolean to initialize or increase the risk.
+	 * @param beliefState One of the current belief states of the agent.
+	 * @param weight      The weight of the belief state.
 	 */
-	private static void applyRiskPattern(Position pos, int nb_pos, boolean init) {
-		// Quand le boolean est false, quand on veut mettre a jour les risques du pacman
-		if (!init) {
-			// Appliquer le motif de risque spécifique autour de chaque position de fantôme
-			// Au niveau de la position du fantome
-			updateRiskAtPosition(pos.x, pos.y, 500, nb_pos);
-			// les cases juste a cote de la position du fantome suppose
-			updateRiskAtPosition(pos.x - 1, pos.y, 500, nb_pos);
-			updateRiskAtPosition(pos.x, pos.y - 1, 500, nb_pos);
-			updateRiskAtPosition(pos.x + 1, pos.y, 500, nb_pos);
-			updateRiskAtPosition(pos.x, pos.y + 1, 500, nb_pos);
-			// Diagonales autour du fantomes
-			updateRiskAtPosition(pos.x - 1, pos.y - 1, 100, nb_pos);
-			updateRiskAtPosition(pos.x - 1, pos.y + 1, 100, nb_pos);
-			updateRiskAtPosition(pos.x + 1, pos.y + 1, 100, nb_pos);
-			updateRiskAtPosition(pos.x + 1, pos.y - 1, 100, nb_pos);
-
-			// Case en plus
-			updateRiskAtPosition(pos.x - 2, pos.y - 1, 40, nb_pos);
-			updateRiskAtPosition(pos.x - 2, pos.y + 1, 40, nb_pos);
-			updateRiskAtPosition(pos.x + 1, pos.y + 2, 40, nb_pos);
-			updateRiskAtPosition(pos.x + 1, pos.y - 2, 40, nb_pos);
-			updateRiskAtPosition(pos.x - 1, pos.y - 2, 40, nb_pos);
-			updateRiskAtPosition(pos.x - 1, pos.y + 2, 40, nb_pos);
-			updateRiskAtPosition(pos.x + 2, pos.y + 1, 40, nb_pos);
-			updateRiskAtPosition(pos.x + 2, pos.y - 1, 40, nb_pos);
-
-			// Autour du fantôme, verticalement et horizontalement
-			for (int i = 2; i <= 3; i++) {
-				// Si on est 3 cases a cote on met le risque a 50 sinon le risque est mis a 100
-				updateRiskAtPosition(pos.x - i, pos.y, (i == 3) ? 50 : 100, nb_pos);
-				updateRiskAtPosition(pos.x + i, pos.y, (i == 3) ? 50 : 100, nb_pos);
-				updateRiskAtPosition(pos.x, pos.y - i, (i == 3) ? 50 : 100, nb_pos);
-				updateRiskAtPosition(pos.x, pos.y + i, (i == 3) ? 50 : 100, nb_pos);
-			}
-		}
-		// Dans ce bloc on reinitialise les cases autour du pacman
-		else {
-			// Au niveau de la position du fantome
-			InitRiskAtPosition(pos.x, pos.y, 500, nb_pos);
-			// les cases juste a cote de la position du fantome suppose
-			InitRiskAtPosition(pos.x - 1, pos.y, 500, nb_pos);
-			InitRiskAtPosition(pos.x, pos.y - 1, 500, nb_pos);
-			InitRiskAtPosition(pos.x + 1, pos.y, 500, nb_pos);
-			InitRiskAtPosition(pos.x, pos.y + 1, 500, nb_pos);
-			// Diagonales autour du fantomes
-			InitRiskAtPosition(pos.x - 1, pos.y - 1, 100, nb_pos);
-			InitRiskAtPosition(pos.x - 1, pos.y + 1, 100, nb_pos);
-			InitRiskAtPosition(pos.x + 1, pos.y + 1, 100, nb_pos);
-			InitRiskAtPosition(pos.x + 1, pos.y - 1, 100, nb_pos);
-			// Case en plus
-			InitRiskAtPosition(pos.x - 2, pos.y - 1, 40, nb_pos);
-			InitRiskAtPosition(pos.x - 2, pos.y + 1, 40, nb_pos);
-			InitRiskAtPosition(pos.x + 1, pos.y + 2, 40, nb_pos);
-			InitRiskAtPosition(pos.x + 1, pos.y - 2, 40, nb_pos);
-			InitRiskAtPosition(pos.x - 1, pos.y - 2, 40, nb_pos);
-			InitRiskAtPosition(pos.x - 1, pos.y + 2, 40, nb_pos);
-			InitRiskAtPosition(pos.x + 2, pos.y + 1, 40, nb_pos);
-			InitRiskAtPosition(pos.x + 2, pos.y - 1, 40, nb_pos);
-
-			for (int i = 2; i <= 3; i++) {
-				InitRiskAtPosition(pos.x - i, pos.y, (i == 3) ? 50 : 100, nb_pos);
-				InitRiskAtPosition(pos.x + i, pos.y, (i == 3) ? 50 : 100, nb_pos);
-				InitRiskAtPosition(pos.x, pos.y - i, (i == 3) ? 50 : 100, nb_pos);
-				InitRiskAtPosition(pos.x, pos.y + i, (i == 3) ? 50 : 100, nb_pos);
+	private void updateRiskGrid(BeliefState beliefState, double weight) {
+		// Si le pacman pense qu'il y a un fantome a un certain endroit on augmente les
+		// cases autour de cet endroit pour eviter qu'il se rapproche du fantome
+		for (int k = 0; k < beliefState.getNbrOfGhost(); k++) {
+			PositionSet positionsFantome = beliefState.getGhostPositions(k);
+			int size = positionsFantome.size();
+			// les positions d'une meme case (avec des directions differentes) se suivent :
+			// la zone de la case est appliquee une fois avec le poids de toutes ses positions
+			int index = positionsFantome.nextIndex(0);
+			while (index >= 0) {
+				int open = PositionSet.openCell(index), count = 0;
+				while (index >= 0 && PositionSet.openCell(index) == open) {
+					count++;
+					index = positionsFantome.nextIndex(index + 1);
+				}
+				applyRiskPattern(open, weight * count / size);
 			}
 		}
 	}
 
 	/**
-	 * Updates the risk grid based on the position of the ghosts.
+	 * Modifies the risk memory of the agent (and the risk grid of the current
+	 * move) based on the presence of gommes.
 	 *
+	 * @param riskMemory  The risk memory of the agent.
 	 * @param beliefState The current belief state of the agent.
 	 */
-	private static void updateRiskGrid(BeliefState beliefState) {
-		// Recupere toutes les positions des deux fantomes
-		TreeSet<Position> positionsFantome1 = beliefState.getGhostPositions(0);
-		TreeSet<Position> positionsFantome2 = beliefState.getGhostPositions(1);
-		// Si le pacman pense qu'il y a le fantome1 a un certain endroit on augmente les
-		// cases autour de cet endroit pour eviter
-		// qu'il se rapproche du fantome
-		for (Position pos : positionsFantome1) {
-			applyRiskPattern(pos, positionsFantome1.size(), false);
-		}
-		// Si le pacman pense qu'il y a le fantome1 a un certain endroit on augmente les
-		// cases autour de cet endroit pour eviter
-		// qu'il se rapproche du fantome
-		for (Position pos : positionsFantome2) {
-			applyRiskPattern(pos, positionsFantome2.size(), false);
+	private void updateRiskGridGomme(int[] riskMemory, BeliefState beliefState) {
+		for (int n = 0; n < riskMemory.length; n++) {
+			int c = this.level.cellOfOpen(n);
+			char cell = beliefState.getMap(c / this.taille, c % this.taille);
+			if (cell == '*') { // si il y a une super gomme
+				riskMemory[n] = -50;
+				this.riskGrid[n] = 0;
+			}
+			if (cell == '.') { // si y a une gomme simple
+				riskMemory[n] = -20;
+				this.riskGrid[n] = 0;
+			}
 		}
 	}
 
 	/**
-	 * Resets the risk level at a specific position in the grid.
+	 * Lowers the risk on the paths leading to the possible positions of a ghost
+	 * in one of the belief states, so that PacMan attacks it.
 	 *
-	 * @param x         The index of the row in the risk grid.
-	 * @param y         The index of the column in the risk grid.
-	 * @param riskValue The value of the risk to subtract.
-	 * @param nb_pos    The number of positions (used to divide the risk).
+	 * @param beliefState One of the current belief states of the agent.
+	 * @param numfantome  The Id of the ghost to attack.
+	 * @param weight      The weight of the belief state.
 	 */
-	private static void InitRiskAtPosition(int x, int y, int riskValue, int nb_pos) {
-		if (x >= 0 && x < RiskCount.length && y >= 0 && y < RiskCount[x].length) {
-			RiskCount[x][y] -= riskValue / nb_pos;
+	private void attackFantome(BeliefState beliefState, int numfantome, double weight) {
+		PositionSet positionsFantome = beliefState.getGhostPositions(numfantome);
+		for (Position posi : positionsFantome) {
+			ArrayList<Position> path = this.shortestPathTo(beliefState, posi);
+			for (Position pos : path) {
+				this.addRisk(this.openCell(pos), -250.0 * weight / positionsFantome.size());
+			}
 		}
 	}
 
 	/**
-	 * Resets the risk grid based on the position of the ghosts.
+	 * Computes and returns the shortest path to a specific goal. On a map small
+	 * enough to have the full distance table the path follows the next hops of
+	 * the table, otherwise it is searched with A*.
 	 *
 	 * @param beliefState The current belief state of the agent.
+	 * @param goal        The goal to find the shortest path towards.
+	 * @return A list of positions representing the shortest path (from the
+	 *         position of PacMan to the goal), empty if the goal can't be reached.
 	 */
-	private static void InitRiskGrid(BeliefState beliefState) {
-		// Mettre à jour le tableau avec les nouveaux risques
-		TreeSet<Position> positionsFantome1 = beliefState.getGhostPositions(0);
-		TreeSet<Position> positionsFantome2 = beliefState.getGhostPositions(1);
-		// Si le pacman voit le fantome1 on augmente les cases autour de lui pour eviter
-		// qu'il se rapproche du fantome
-		for (Position pos : positionsFantome1) {
-			applyRiskPattern(pos, positionsFantome1.size(), true);
+	private ArrayList<Position> shortestPathTo(BeliefState beliefState, Position goal) {
+		ArrayList<Position> path = new ArrayList<>();
+		Position current = beliefState.getPacmanPos();
+		Distances distances = beliefState.getLevel().getDistances();
+		if (!distances.hasFullTable()) {
+			// recherche A* avec les tableaux de travail de l'agent (recrees a chaque niveau)
+			if (this.pathFinder == null || !this.pathFinder.isFor(distances)) {
+				this.pathFinder = new PathFinder(distances);
+			}
+			int taille = distances.getNbCases();
+			int length = this.pathFinder.findPath(current.x * taille + current.y, goal.x * taille + goal.y);
+			for (int i = 0; i < length; i++) {
+				int cell = this.pathFinder.getPathCell(i);
+				path.add(new Position(cell / taille, cell % taille, 'U'));
+			}
+			return path;
 		}
-
-		for (Position pos : positionsFantome2) {
-			applyRiskPattern(pos, positionsFantome2.size(), true);
+		if (beliefState.distance(current.x, current.y, goal.x, goal.y) == Integer.MAX_VALUE) {
+			return path;
 		}
+		// suit la case suivante du plus court chemin jusqu'a l'objectif
+		while (current != null) {
+			path.add(current);
+			current = beliefState.nextHop(current, goal);
+		}
+		return path;
 	}
 
 	/**
-	 * Modifies the risk grid based on the presence of gommes.
+	 * Returns the rest of the route toward the targeted gomme. The route is
+	 * reused from one move to the next, it is computed again (toward the closest
+	 * gomme) only when the gomme has been eaten, when a possible position of a
+	 * ghost is on the rest of the route or when PacMan is no longer on it.
 	 *
 	 * @param beliefState The current belief state of the agent.
+	 * @return The positions from PacMan to the targeted gomme, empty if no gomme
+	 *         can be reached.
 	 */
-	private static void updateRiskGridGomme(BeliefState beliefState) {
-		for (int x = 2; x < 25; x++) {
-			for (int y = 2; y < 25; y++) {
-				char cell = beliefState.getMap(x, y);
-				if (cell == '*') { // si il y a une super gomme
-					RiskCount[x][y] = -50;
-				}
-				if (cell == '.') { // si y a une gomme simple
-					RiskCount[x][y] = -20;
+	private List<Position> followRoute(BeliefState beliefState) {
+		Position current = beliefState.getPacmanPos();
+		int index = -1;
+		if (this.route != null) {
+			// PacMan a avance d'une case sur le chemin ou n'a pas bouge
+			for (int i = this.routeIndex; i < this.route.size() && i <= this.routeIndex + 1 && index < 0; i++) {
+				if (this.route.get(i).x == current.x && this.route.get(i).y == current.y) {
+					index = i;
 				}
 			}
 		}
+		if (index < 0 || !isGomme(beliefState, this.route.get(this.route.size() - 1)) || isCrossedByGhost(beliefState, this.route, index)) {
+			this.routeReplans++;
+			Position closestGomme = findClosestGomme(beliefState);
+			this.route = closestGomme == null ? new ArrayList<Position>() : this.shortestPathTo(beliefState, closestGomme);
+			this.routeIndex = 0;
+			if (this.route.isEmpty()) {
+				this.route = null;
+				return new ArrayList<Position>();
+			}
+		}
+		else {
+			this.routeHits++;
+			this.routeIndex = index;
+		}
+		return this.route.subList(this.routeIndex, this.route.size());
 	}
 
 	/**
-	 * Updates the risk matrix based on the ghost positions provided by the belief
-	 * state.
+	 * Checks if there is still a gomme (or a super gomme) at a position.
 	 *
 	 * @param beliefState The current belief state of the agent.
+	 * @param pos         The position to check.
+	 * @return true if the gomme has not been eaten.
 	 */
-	private static void attackFantome(BeliefState beliefState, int numfantome) {
-		if (numfantome == 0) {
-			// Mettre à jour le tableau avec les nouveaux risques
-			TreeSet<Position> positionsFantome1 = beliefState.getGhostPositions(0);
-			for (Position posi : positionsFantome1) {
-				ArrayList<Position> path = shortestPathBFS(beliefState, posi);
-				for (Position pos : path) {
-					RiskCount[pos.x][pos.y] -= (250 / positionsFantome1.size());
-				}
-			}
-		}
-		if (numfantome == 1) {
-			// Si le pacman voit le fantome1 on augmente les cases autour de lui pour eviter
-			// qu'il se rapproche du fantome
-			TreeSet<Position> positionsFantome2 = beliefState.getGhostPositions(1);
-			for (Position posi : positionsFantome2) {
-				ArrayList<Position> path2 = shortestPathBFS(beliefState, posi);
-				for (Position pos : path2) {
-					RiskCount[pos.x][pos.y] -= (250 / positionsFantome2.size());
-				}
-			}
-		}
+	private static boolean isGomme(BeliefState beliefState, Position pos) {
+		char cell = beliefState.getMap(pos.x, pos.y);
+		return cell == '.' || cell == '*';
 	}
 
 	/**
-	 * Initializes the risk assessment by updating the risk matrix based on the
-	 * ghost positions
+	 * Checks if a possible position of a ghost is on the rest of a route.
 	 *
 	 * @param beliefState The current belief state of the agent.
+	 * @param route       The route.
+	 * @param from        The index of the first position of the rest of the route.
+	 * @return true if a ghost may be on the route.
 	 */
-	private static void init_attackFantome(BeliefState beliefState, int numfantome) {
-		if (numfantome == 0) {
-			// Mettre à jour le tableau avec les nouveaux risques
-			TreeSet<Position> positionsFantome1 = beliefState.getGhostPositions(0);
-			for (Position posi : positionsFantome1) {
-				ArrayList<Position> path = shortestPathBFS(beliefState, posi);
-				for (Position pos : path) {
-					RiskCount[pos.x][pos.y] += (250 / positionsFantome1.size());
-				}
-			}
-		}
-		if (numfantome == 1) {
-			// Si le pacman voit le fantome1 on augmente les cases autour de lui pour eviter
-			// qu'il se rapproche du fantome
-			TreeSet<Position> positionsFantome2 = beliefState.getGhostPositions(1);
-			for (Position posi : positionsFantome2) {
-				ArrayList<Position> path2 = shortestPathBFS(beliefState, posi);
-				for (Position pos : path2) {
-					RiskCount[pos.x][pos.y] += (250 / positionsFantome2.size());
+	private static boolean isCrossedByGhost(BeliefState beliefState, ArrayList<Position> route, int from) {
+		for (int k = 0; k < beliefState.getNbrOfGhost(); k++) {
+			PositionSet positionsFantome = beliefState.getGhostPositions(k);
+			for (int i = from; i < route.size(); i++) {
+				if (positionsFantome.containsCell(route.get(i).x, route.get(i).y)) {
+					return true;
 				}
 			}
 		}
+		return false;
 	}
 
 	/**
-	 * Helper method to construct a path towards a goal.
+	 * Returns the number of moves where the route toward the targeted gomme has
+	 * been reused.
 	 *
-	 * @param parentMap A map tracking parent positions for each position.
-	 * @param path      The path to construct.
-	 * @param current   The current position for which to build the path.
+	 * @return The number of moves.
 	 */
-	private static void constructPath(HashMap<Position, Position> parentMap, ArrayList<Position> path,
-			Position current) {
-		while (current != null) {
-			path.add(0, current);
-			current = parentMap.get(current);
+	public long getRouteHits() {
+		return this.routeHits;
+	}
+
+	/**
+	 * Returns the number of moves where the route toward the targeted gomme has
+	 * been computed again.
+	 *
+	 * @return The number of moves.
+	 */
+	public long getRouteReplans() {
+		return this.routeReplans;
+	}
+
+	/**
+	 * Adds a risk to a cell in the risk grid of the current move, and records the
+	 * cell the first time it is modified so that the grid is cleared by
+	 * clearRiskGrid.
+	 *
+	 * @param open The open cell.
+	 * @param risk The risk to add.
+	 */
+	private void addRisk(int open, double risk) {
+		if (!this.isTouched[open]) {
+			this.isTouched[open] = true;
+			this.touchedCells[this.nbrOfTouchedCells++] = open;
+		}
+		this.riskGrid[open] += risk;
+	}
+
+	/**
+	 * Puts back to zero the cells of the risk grid modified during the current
+	 * move (the other cells are still zero).
+	 */
+	private void clearRiskGrid() {
+		for (int i = 0; i < this.nbrOfTouchedCells; i++) {
+			this.riskGrid[this.touchedCells[i]] = 0;
+			this.isTouched[this.touchedCells[i]] = false;
 		}
+		this.nbrOfTouchedCells = 0;
+	}
+
+	/**
+	 * Returns the index of the cell of a position among the open cells of the
+	 * level, the index of the position in the risk grids.
+	 *
+	 * @param pos The position.
+	 * @return The index of the open cell (see LevelContext.openCell).
+	 */
+	private int openCell(Position pos) {
+		return this.level.openCell(pos.x * this.taille + pos.y);
 	}
 
 	/**
-	 * Computes and returns the shortest path to a specific goal by using BFS.
+	 * Prepares the arrays of the agent when a new level starts: their sizes and
+	 * the number of gommes of the level are taken from the belief state. The risk
+	 * memory of the cells that are open in both maps is kept when the new map has
+	 * the same size.
 	 *
 	 * @param beliefState The current belief state of the agent.
-	 * @param goal        The goal to find the shortest path towards.
-	 * @return A list of positions representing the shortest path.
 	 */
-	private static ArrayList<Position> shortestPathBFS(BeliefState beliefState, Position goal) {
-		// Initialise une file de priorite basée sur la distance de Manhattan jusqu'a
-		// l'objectif
-		PriorityQueue<Position> queue = new PriorityQueue<>(
-				Comparator.comparingInt(p -> calculateDistanceMan(p, goal)));
-		// Map pour suivre les positions parentes pour chaque position dans le chemin
-		HashMap<Position, Position> parentMap = new HashMap<>();
-		// Liste pour stocker le chemin
-		ArrayList<Position> path = new ArrayList<>();
-		// Tableau pour marquer les positions visitées dans la grille
-		boolean[][] visited = new boolean[30][30];
-		// Obtenir la position de départ (position de Pacman)
-		Position start = beliefState.getPacmanPos().clone();
-		// ajoute la pisition de depart a la file
-		queue.add(start);
-		parentMap.put(start, null);
-		// Utilisation de BFS pour trouver le plus court chemin
-		while (!queue.isEmpty()) {
-			// enleve l'element de la file de priorite
-			Position current = queue.poll();
-			int x = current.x;
-			int y = current.y;
-			// Vérifier si la position actuelle a été visitée
-			if (visited[x][y]) {
-				// si oui on prend le prochain element dans la file
-				continue;
-			}
-			// Marquer la position actuelle comme visitée
-			visited[x][y] = true;
-			// Vérifier si la position objectif a été atteinte
-			if (x == goal.x && y == goal.y) {
-				// si oui on onstruit le chemin en utilisant parentMap
-				constructPath(parentMap, path, current);
-				// retourne le chemin allant a cet etat but
-				return path;
-			}
-			// Sinon on genere les mouvements possibles à partir de la position actuelle
-			int[] dx = { 1, -1, 0, 0 };
-			int[] dy = { 0, 0, 1, -1 };
-			for (int i = 0; i < 4; i++) {
-				// Vérifier les limites
-				if ((current.x == 0 && dx[i] == -1) || (current.y == 0 && dy[i] == -1))
-					continue;
-				// si on est pas dans les limites du tableau
-				int newX = current.x + dx[i];
-				int newY = current.y + dy[i];
-				Position nextMove = new Position(newX, newY, 'U');
-				// evite les mouvement menant a des murs
-				if (beliefState.getMap(newX, newY) != '#') {
-					// Ajouter les mouvements valides à la file et mettre à jour parentMap
-					queue.add(nextMove);
-					parentMap.put(nextMove, current);
+	private void startLevel(BeliefState beliefState) {
+		LevelContext level = beliefState.getLevel();
+		if (this.level == level) {
+			return;
+		}
+		Distances distances = level.getDistances();
+		int[] riskMemory = new int[level.getNbrOfOpenCells()];
+		if (this.level != null && this.taille == distances.getNbCases()) {
+			// les cases libres sont numerotees autrement dans la nouvelle map
+			for (int n = 0; n < riskMemory.length; n++) {
+				int old = this.level.openCell(level.cellOfOpen(n));
+				if (old >= 0) {
+					riskMemory[n] = this.riskMemory[old];
 				}
 			}
 		}
-		// Retourner un chemin vide si l'objectif est impossible
-		return new ArrayList<>();
+		this.riskMemory = riskMemory;
+		this.riskGrid = new double[riskMemory.length];
+		this.touchedCells = new int[riskMemory.length];
+		this.isTouched = new boolean[riskMemory.length];
+		this.nbrOfTouchedCells = 0;
+		this.level = level;
+		this.taille = distances.getNbCases();
+		this.initialGommes = beliefState.getNbrOfGommes();
+		this.route = null;
+	}
+
+	/**
+	 * Chooses the next move of PacMan from all the belief states (the risk grid
+	 * does not depend on the time given to the move).
+	 *
+	 * @param beliefStates The current belief states of the agent.
+	 * @param budget       The time the move may take, in nanoseconds (unused).
+	 * @return A string describing the next move (UP, DOWN, LEFT, RIGHT).
+	 */
+	public String decide(ArrayList<BeliefState> beliefStates, long budget) {
+		return this.findNextMove(beliefStates);
 	}
 
 	/* Variables */
 
 	/**
-	 * Array representing risk levels for each position on the map.
-	 * Each cell in the array stores a risk score, influencing PacMan's movement
-	 * decisions.
-	 * Higher scores indicate higher risk, while lower scores indicate lower risk.
+	 * Risk of a cell at each distance in the maze from a possible position of a
+	 * ghost (0 for the cell of the ghost, up to LevelContext.GHOST_RANGE); the
+	 * cells further away are not at risk.
+	 */
+	private static final int[] GHOST_RISK = { 500, 500, 100, 50, 20 };
+
+	/**
+	 * Risk memory of the agent, kept from one move to the next: the risk added on
+	 * each cell visited by PacMan (so that he avoids coming back) and the values
+	 * put on the gommes at the start of a level. The risks of the ghosts and of the
+	 * path are not stored here but in a risk grid built at each move. Both have
+	 * one risk per open cell of the level (index LevelContext.openCell).
+	 */
+	private int[] riskMemory;
+
+	/**
+	 * Risk grid of the current move: the risks added to the risk memory for this
+	 * move only (the risk of a cell is riskMemory + riskGrid). The grid is kept
+	 * for the level and only the cells modified by a move (touchedCells, the first
+	 * nbrOfTouchedCells ones) are cleared at the end of the move.
+	 */
+	private double[] riskGrid;
+	private int[] touchedCells;
+	private boolean[] isTouched;
+	private int nbrOfTouchedCells;
+
+	/**
+	 * Current level (used to detect a new level), size of the map and number of
+	 * gommes at the start of the level.
+	 */
+	private LevelContext level;
+	private int taille;
+	private int initialGommes;
+
+	/**
+	 * Route followed by PacMan toward the gomme he targets (from the position of
+	 * PacMan when it was computed to the gomme), null before the first move.
+	 */
+	private ArrayList<Position> route;
+
+	/**
+	 * Index in the route of the position of PacMan at the last move.
 	 */
-	private static int[][] RiskCount = new int[30][30];
+	private int routeIndex;
 
 	/**
-	 * List storing the positions forming the shortest path to the nearest gomme.
-	 * Used to guide PacMan efficiently towards the gomme.
+	 * Number of moves where the route has been reused and number of moves where
+	 * it has been computed again.
 	 */
-	static ArrayList<Position> shortestPath;
+	private long routeHits, routeReplans;
 
 	/**
-	 * Counter used to determine when to reset the calculation for the nearest
-	 * gomme.
-	 * When "cpt" reaches 6, it triggers a recalculation to determine which gomme is
-	 * the closest,
-	 * thereby avoiding recalculating with every individual movement.
+	 * A* search used to compute the paths on the maps too large to have the full
+	 * distance table, its work arrays are reused from one search to the next.
 	 */
-	private static int cpt = 0;
+	private PathFinder pathFinder;
 
 	/**
-	 * Finds and returns the next move for PacMan.
+	 * Finds and returns the next move for PacMan from a single belief state.
 	 *
 	 * @param beliefState The current belief state of the agent.
 	 * @return A string describing the next move (UP, DOWN, LEFT, RIGHT).
 	 */
-	public static String findNextMove(BeliefState beliefState) {
+	public String findNextMove(BeliefState beliefState) {
+		ArrayList<BeliefState> beliefStates = new ArrayList<BeliefState>();
+		beliefStates.add(beliefState);
+		return this.findNextMove(beliefStates);
+	}
+
+	/**
+	 * Finds and returns the next move for PacMan. The risks of the ghosts are
+	 * those of all the belief states (all the visible states or all the
+	 * particles), each one with the same weight; the part known by PacMan (his
+	 * position, the gommes and the fear of the ghosts) is read in the first one.
+	 * Each game (each agent) uses its own AI object (with its own risk grid), so
+	 * several agents can play at the same time.
+	 *
+	 * @param beliefStates The current belief states of the agent.
+	 * @return A string describing the next move (UP, DOWN, LEFT, RIGHT).
+	 */
+	public String findNextMove(ArrayList<BeliefState> beliefStates) {
+		BeliefState beliefState = beliefStates.get(0);
+		double weight = 1.0 / beliefStates.size();
 		// Position du Pacman
 		Position currentPosition = beliefState.getPacmanPos().clone();
-		// Récupère la position de la gomme la plus proche
-		Position closestGomme = findClosestGomme(beliefState);
 		// On augmente le risque sur la position du PacMan pour qu'il evite de revenir
 		// sur son chemin
-		RiskCount[currentPosition.x][currentPosition.y] += 15;
-		// Niveau de peur des fantomes
-		int NiveauPeur_fantome1 = beliefState.getCompteurPeur(0);
-		int NiveauPeur_fantome2 = beliefState.getCompteurPeur(1);
+		this.startLevel(beliefState);
+		this.riskMemory[this.openCell(currentPosition)] += 15;
+		// Les risques de ce coup sont ajoutes a la memoire de l'agent dans riskGrid
 		// Nombre de gomme dans la map actuelle
 		int NbGomme = beliefState.getNbrOfGommes();
-		// Initialise le tableau des risques à chaque mouvement en fonction de la
-		// postion du fantôme1 lorsque celui ci est pas ou tres peu effrayee
-		if (NiveauPeur_fantome1 < 10) {
-			updateRiskGrid(beliefState);
-		}
-		// Initialise le tableau des risques à chaque mouvement en fonction de la
-		// postion du fantôme2 lorsque celui ci est pas ou tres peu effrayee
-		if (NiveauPeur_fantome2 < 10) {
-			updateRiskGrid(beliefState);
-		}
-		// Si les deux fantômes sont en état de peur en même temps le pacman pass en
-		// attaque
-		if ((NiveauPeur_fantome1 >= 10)) {
-			// mise en attaque de notre pacman vers le fantôme 1
-			attackFantome(beliefState, 0);
-		}
-
-		if ((NiveauPeur_fantome2 >= 10)) {
-			// mise en attaque de notre pacman vers le fantôme 2
-			attackFantome(beliefState, 1);
+		boolean allAfraid = true;
+		for (int k = 0; k < beliefState.getNbrOfGhost(); k++) {
+			for (BeliefState state : beliefStates) {
+				if (beliefState.getCompteurPeur(k) < 10) {
+					// Ajoute les risques de tous les fantomes pour chaque fantome pas ou tres peu
+					// effraye
+					this.updateRiskGrid(state, weight);
+					allAfraid = false;
+				}
+				else {
+					// mise en attaque de notre pacman vers le fantome effraye
+					this.attackFantome(state, k, weight);
+				}
+			}
 		}
 
 		// On modifie le tableau des risques en fonction des gommes (Si une gomme est
-		// proche on diminue le risque)
-		if (NbGomme == 140 || NbGomme == 205 || NbGomme == 165) {
-			updateRiskGridGomme(beliefState);
+		// proche on diminue le risque) tant qu'aucune gomme du niveau n'a ete mangee
+		if (NbGomme == this.initialGommes) {
+			this.updateRiskGridGomme(this.riskMemory, beliefState);
 		}
-		// Permet de voir s'il a mangé la gomme ou pas et d'aller vers l'autre gomme la
-		// plus proche
-		if (beliefState.getMap(closestGomme.x, closestGomme.y) == 'O' || cpt > 4) {
-			cpt = 0;
-			closestGomme = findClosestGomme(beliefState);
-		}
-		cpt++;
-		shortestPath = shortestPathBFS(beliefState, closestGomme);
+		// Chemin vers la gomme visee, recalcule seulement s'il n'est plus valable
+		List<Position> shortestPath = this.followRoute(beliefState);
 		for (Position path : shortestPath) {
-			// Si les deux fantomes ont peur en même temps
-			if (beliefState.getCompteurPeur(0) >= 10 && beliefState.getCompteurPeur(1) >= 10) {
-				RiskCount[path.x][path.y] -= 200;
+			// Si tous les fantomes ont peur en même temps
+			if (allAfraid) {
+				this.addRisk(this.openCell(path), -200);
 			}
-			RiskCount[path.x][path.y] -= 25;
+			this.addRisk(this.openCell(path), -25);
 		}
 		// Évaluez le risque pour chaque direction possible
 		Plans pP = beliefState.extendsBeliefState();
 		String bestAction = null;
-		int minRisk = Integer.MAX_VALUE;
+		double minRisk = Double.POSITIVE_INFINITY;
 		// On évalue le risque pour chaque action possible et on renvoie le risque
 		// associé
 		for (int i = 0; i < pP.size(); i++) {
@@ -653,7 +538,8 @@ public class AI {
 				if (isValidMove(beliefState, move)) {
 					// Calculez une position hypothétique après le mouvement
 					Position nextPos = getNextPosition(currentPosition, move);
-					int risk = RiskCount[nextPos.x][nextPos.y];
+					int open = this.openCell(nextPos);
+					double risk = this.riskMemory[open] + this.riskGrid[open];
 					if (risk < minRisk) {
 						minRisk = risk;
 						bestAction = move;
@@ -661,31 +547,7 @@ public class AI {
 				}
 			}
 		}
-		/* Parite pour réinitialiser le tableau des risques du pacman */
-		// Initialise le tableau des risques à chaque mouvement en fonction de la
-		// postion du fantôme1
-		if (NiveauPeur_fantome1 < 10) {
-			InitRiskGrid(beliefState);
-		}
-		if (NiveauPeur_fantome2 < 10) {
-			InitRiskGrid(beliefState);
-		}
-		// On enlève le mode attaque après avoir trouvé le bestmove en réinitialisant le
-		// tableau des risques
-		if ((NiveauPeur_fantome1 >= 10)) {
-			init_attackFantome(beliefState, 0);
-		}
-		if ((NiveauPeur_fantome2 >= 10)) {
-			init_attackFantome(beliefState, 1);
-		}
-
-		for (Position path : shortestPath) {
-			// Si les deux fantomes ont peur en même temps
-			if (beliefState.getCompteurPeur(0) >= 10 && beliefState.getCompteurPeur(1) >= 10) {
-				RiskCount[path.x][path.y] += 200;
-			}
-			RiskCount[path.x][path.y] += 25;
-		}
+		this.clearRiskGrid();
 		// Si le niveau ne contient plus de gomme on arrete
 		if (beliefState.getNbrOfGommes() == 0) {
 			return null;
@@ -0,0 +1,103 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * plays a batch of headless games on a pool of threads and prints their aggregated statistics (GameStatistics).
+ * Each game has its own HeadlessGame (level, state of the game, visible belief states), its own policy and its own seed,
+ * drawn from the seed of the batch.
+ * java -Djava.awt.headless=true -cp bin logic.BatchRunner [policy] [budget ms] [games] [threads] [max actions] [particles | factored] [seed]
+ */
+public class BatchRunner {
+	private final String policyName;
+	/** time given to each move of the policies, in nanoseconds */
+	private final long budget;
+	private final long maxActions;
+	/** maximal number of visible belief states of a game, 0 to keep all of them, -1 for the factored belief */
+	private final int nbrOfParticles;
+
+	/**
+	 * construct a runner
+	 * @param policyName the name of the policy of the games in the PolicyRegistry
+	 * @param budget the time given to each move of the policy, in nanoseconds
+	 * @param maxActions the maximal number of actions of a game
+	 * @param nbrOfParticles the maximal number of visible belief states of a game, 0 to keep all of them, -1 for the factored belief
+	 */
+	public BatchRunner(String policyName, long budget, long maxActions, int nbrOfParticles) {
+		this.policyName = policyName;
+		this.budget = budget;
+		this.maxActions = maxActions;
+		this.nbrOfParticles = nbrOfParticles;
+	}
+
+	/**
+	 * play games on a pool of threads
+	 * @param games the number of games
+	 * @param threads the number of threads of the pool
+	 * @param seed the seed of the batch, the seed of each game is drawn from it (in the order of the games)
+	 * @return the statistics of all the games
+	 */
+	public GameStatistics run(int games, int threads, long seed) throws InterruptedException, ExecutionException {
+		SplittableRandom seeds = new SplittableRandom(seed);
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			ArrayList<Future<GameStatistics>> results = new ArrayList<Future<GameStatistics>>();
+			for(int game = 0; game < games; game++) {
+				long gameSeed = seeds.nextLong();
+				results.add(pool.submit(() -> this.play(gameSeed)));
+			}
+			GameStatistics statistics = new GameStatistics();
+			for(Future<GameStatistics> result: results) {
+				statistics.merge(result.get());
+			}
+			return statistics;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * play one game
+	 * @param seed the seed of the game
+	 * @return the statistics of the game
+	 */
+	private GameStatistics play(long seed) {
+		GameStatistics statistics = new GameStatistics();
+		HeadlessGame game = new HeadlessGame(this.policyName, this.budget, this.nbrOfParticles, seed);
+		game.setStatistics(statistics);
+		game.play(this.maxActions);
+		return statistics;
+	}
+
+	/**
+	 * play a batch of games and print their statistics
+	 * @param args [name of the policy] [time given to each move in ms] [number of games] [number of threads, by default one per processor] [maximal number of actions of a game] [maximal number of visible belief states, 0 for all of them, or "factored"] [seed]
+	 */
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		String policyName = args.length > 0 ? args[0] : PolicyRegistry.DEFAULT;
+		long budget = (args.length > 1 ? Long.parseLong(args[1]) : 50) * 1000000L;
+		int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long maxActions = args.length > 4 ? Long.parseLong(args[4]) : 20000;
+		int nbrOfParticles = 0;
+		if(args.length > 5)
+			nbrOfParticles = args[5].equals("factored") ? -1 : Integer.parseInt(args[5]);
+		long seed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+		if(!PolicyRegistry.contains(policyName)) {
+			System.out.println("unknown policy " + policyName + ", available: " + PolicyRegistry.getNames());
+			return;
+		}
+		System.out.println("policy: " + policyName + ", seed: " + seed + ", threads: " + threads);
+		long start = System.nanoTime();
+		GameStatistics statistics = new BatchRunner(policyName, budget, maxActions, nbrOfParticles).run(games, threads, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(statistics);
+		System.out.println(String.format("%.1f games per minute, %.0f moves per second", games * 60 / seconds, statistics.getNbrOfActions() / seconds));
+	}
+}
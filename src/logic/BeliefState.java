@@ -3,133 +3,85 @@ package logic;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 //import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Scanner;
-import java.util.TreeSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
 
+import data.Distances;
 import data.Map;
 import view.Gomme;
 
-/**
- * an object Position correspond to a position in the Pacman grid
- */
-class Position implements Comparable{
-	public int x, y;
-	public char dir;
-
-	/**
-	 * construct a new Object position corresponding to the position of an entity (ghost or pacman) in the grid
-	 * @param x row
-	 * @param y column
-	 * @param dir direction followed by the entity
-	 */
-	public Position(int x, int y, char dir) {
-		this.x = x;
-		this.y = y;
-		this.dir = dir;
-	}
-	
-	/**
-	 * return the row index
-	 * @return the row index
-	 */
-	int getRow() {
-		return this.x;
-	}
-	
-	/**
-	 * return the column index
-	 * @return the column index
-	 */
-	int getColumn() {
-		return this.y;
-	}
-	
-	/**
-	 * return direction (among 'U', 'D', 'L', 'R')
-	 * @return
-	 */
-	char getDirection() {
-		return this.dir;
-	}
-
-	public String toString() {
-		return "(" + this.x + "," + this.y + ") " + this.dir;
-	}
-
-	/**
-	 * construct a copie of a given position
-	 * @param pos
-	 */
-	public Position clone() {
-		return new Position(this.x, this.y, this.dir);
-	}
-	
-	
-	/**
-	 * used to compare two positions
-	 * @return 0 if the two positions are the same
-	 */
-	public int compareTo(Object o) {
-		Position pos = (Position)o;
-		int comp = this.x - pos.x;
-		if(comp != 0)
-			return comp;
-		comp = this.y - pos.y;
-		if(comp != 0)
-			return comp;
-		comp = this.dir - pos.dir;
-		if(comp != 0)
-			return comp;
-		return 0; 
-	}
-}
-
 /**
  * an object BeliefState represents all relevant information about the game.
  */
-public class BeliefState implements Comparable{
-	private char map[][];
-	private ArrayList<TreeSet<Position>> listPGhost;
-	private Position pacmanPos, pacmanOldPos;
+public class BeliefState implements Comparable<BeliefState>{
+	/** cells with a gum (super gums included) and cells with a super gum, one bit per cell */
+	private long[] gums, superGums;
+	/** walls and initial cells of the ghosts, shared by all the states of a level */
+	private long[] walls, ghostHomes;
+	/** possible positions of each ghost */
+	private ArrayList<PositionSet> listPGhost;
+	/** cells (row * taille + column) of Pacman before and after its last move */
+	private int pacmanCell, pacmanOldCell;
+	private char pacmanDir, pacmanOldDir;
 	private int nbrOfGommes, nbrOfSuperGommes, score, life;
-	private ArrayList<Integer> compteurPeur;
-	private static ArrayList<int[]> gamePositions;
-	private static HashSet<String> visible;
-	private static int pacmanXInit, pacmanYInit;
-	private static ArrayList<int[]> listPGhostInit;
-	private static int tailleCase;
-	private static int taille;
+	/** score at which Pacman wins a life (see Pacman.PALIER) */
+	private int palier;
+	private int[] compteurPeur;
+	/** Zobrist hash of Pacman, the gums and the possible positions of the ghosts, updated at each modification */
+	private long zobrist;
+	/** part of the Zobrist hash corresponding to the possible positions of each ghost */
+	private long[] ghostHashes;
+	/** in-place modifications recorded since the first call to mark(), null if mark() has never been called */
+	private ArrayList<Undo> undoLog;
+	/** distance from each cell to the closest gum, built on the first query (null before) and updated when a gum is eaten (copied first if it is shared) */
+	private GumField gumField;
+	/** true once the state belongs to a Result: it may be shared (transposition table) and must not be modified in place any more */
+	private boolean frozen;
+	/** level of the state (size of the grid, initial positions, visibility, distances), shared by all the states of the level */
+	private final LevelContext level;
+	/** minimal number of possible positions of the ghosts for extendsBeliefState() to expand the actions in parallel, 0 if disabled */
+	private static volatile int parallelThreshold = 0;
+	/** direction, action and move of each direction index (see directionIndex) */
+	private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+	private static final String[] ACTIONS = {PacManLauncher.UP, PacManLauncher.DOWN, PacManLauncher.LEFT, PacManLauncher.RIGHT};
+	private static final int[] DELTA_ROW = {-1, 1, 0, 0};
+	private static final int[] DELTA_COLUMN = {0, 0, -1, 1};
+	/** opposite direction and mask of the perpendicular directions of each direction index */
+	private static final int[] OPPOSITE = {1, 0, 3, 2};
+	private static final int[] PERPENDICULAR = {0xC, 0xC, 0x3, 0x3};
 	
 	
-	public static void setStaticVariables(ArrayList<int[]> gamePositions, HashSet<String> visible, int pacmanXInit, int pacmanYInit, ArrayList<int[]> listPGhostInit, int tailleCase, int taille) {
-		BeliefState.gamePositions = gamePositions;
-		BeliefState.visible = visible;
-		BeliefState.pacmanXInit = pacmanXInit;
-		BeliefState.pacmanYInit = pacmanYInit;
-		BeliefState.listPGhostInit = listPGhostInit;
-		BeliefState.tailleCase = tailleCase;
-		BeliefState.taille = taille;
-	}
-	/**
-	 * create a new BeliefState object
-	 * @param theMap the current version of the Pacman man discribing the position of (super) gums
+	/**
+	 * create a new BeliefState object, the content of the squares is then given by modifyMap
+	 * @param level the level of the state, built by data.Map
 	 * @param score the current score
 	 * @param life the number of remaining lifes for Pacman
+	 * @param palier the score at which Pacman wins its next life
 	 */
-	public BeliefState(int taille, int score, int life) {
-		BeliefState.taille = taille;
-		this.map = new char[BeliefState.taille][BeliefState.taille];
-		this.pacmanPos = new Position(0,0,'U');
-		this.pacmanOldPos = this.pacmanPos;
-		this.listPGhost = new ArrayList<TreeSet<Position>>();
+	public BeliefState(LevelContext level, int score, int life, int palier) {
+		this.level = level;
+		int taille = level.getTaille();
+		int words = BitBoard.words(taille * taille);
+		this.walls = new long[words];
+		this.ghostHomes = new long[words];
+		this.gums = new long[words];
+		this.superGums = new long[words];
+		this.pacmanCell = 0;
+		this.pacmanDir = 'U';
+		this.pacmanOldCell = this.pacmanCell;
+		this.pacmanOldDir = this.pacmanDir;
+		this.listPGhost = new ArrayList<PositionSet>();
 		this.nbrOfGommes = 0;
 		this.score = score;
-		this.compteurPeur = new ArrayList<Integer>();
+		this.compteurPeur = new int[0];
+		this.ghostHashes = new long[0];
+		this.zobrist = BeliefState.pacmanKey(this.pacmanCell, this.pacmanDir);
 		this.life = life;
+		this.palier = palier;
 	}
 	
 	/*public BeliefState(InputStream in) {
@@ -190,15 +142,23 @@ public class BeliefState implements Comparable{
 		}
 	}*/
 	
-	public int compareTo(Object o) {
-		BeliefState bs = (BeliefState) o;
-		int comp = this.pacmanPos.compareTo(bs.pacmanPos);
+	public int compareTo(BeliefState bs) {
+		int comp = Long.compare(this.zobrist, bs.zobrist);
+		if(comp != 0)
+			return comp;
+		comp = this.pacmanCell - bs.pacmanCell;
+		if(comp != 0)
+			return comp;
+		comp = this.pacmanDir - bs.pacmanDir;
 		if(comp != 0)
 			return comp;
 		comp = this.life - bs.life;
 		if(comp != 0)
 			return comp;
 		comp = this.score - bs.score;
+		if(comp != 0)
+			return comp;
+		comp = this.palier - bs.palier;
 		if(comp != 0)
 			return comp;
 		comp = this.nbrOfGommes - bs.nbrOfGommes;
@@ -207,30 +167,89 @@ public class BeliefState implements Comparable{
 		comp = this.nbrOfSuperGommes - bs.nbrOfSuperGommes;
 		if(comp != 0)
 			return comp;
-		for(int[] pos:BeliefState.gamePositions) {
-			comp = this.map[pos[0]][pos[1]] - bs.map[pos[0]][pos[1]];
-			if(comp != 0)
-				return comp;
-		}
-		for(int i = 0; i < this.compteurPeur.size(); i++) {
-			comp = this.compteurPeur.get(i) - bs.compteurPeur.get(i);
+		comp = BitBoard.compare(this.gums, bs.gums);
+		if(comp != 0)
+			return comp;
+		comp = BitBoard.compare(this.superGums, bs.superGums);
+		if(comp != 0)
+			return comp;
+		for(int i = 0; i < this.compteurPeur.length; i++) {
+			comp = this.compteurPeur[i] - bs.compteurPeur[i];
 			if(comp != 0)
 				return comp;
 		}
 		for(int i = 0; i < this.listPGhost.size(); i++) {
-			TreeSet<Position> posGhost1 = this.listPGhost.get(i), posGhost2 = bs.listPGhost.get(i);
-			comp = posGhost1.size() - posGhost2.size();
+			comp = this.listPGhost.get(i).compareTo(bs.listPGhost.get(i));
 			if(comp != 0)
 				return comp;
-			Iterator<Position> iterPos1 = posGhost1.descendingIterator(), iterPos2 = posGhost2.descendingIterator();
-			for(Position pos1 = iterPos1.next(), pos2 = iterPos2.next(); iterPos1.hasNext(); pos1 = iterPos1.next(), pos2 = iterPos2.next()) {
-				comp = pos1.compareTo(pos2);
-				if(comp != 0)
-					return comp;
-			}
 		}
 		return 0;
 	}
+
+	/**
+	 * two states are equal if they describe exactly the same game (the Zobrist hashes are compared first)
+	 */
+	public boolean equals(Object o) {
+		if(this == o)
+			return true;
+		if(!(o instanceof BeliefState))
+			return false;
+		BeliefState bs = (BeliefState) o;
+		return this.zobrist == bs.zobrist && this.pacmanCell == bs.pacmanCell && this.pacmanDir == bs.pacmanDir
+				&& this.life == bs.life && this.score == bs.score && this.palier == bs.palier
+				&& Arrays.equals(this.compteurPeur, bs.compteurPeur)
+				&& Arrays.equals(this.gums, bs.gums) && Arrays.equals(this.superGums, bs.superGums)
+				&& this.listPGhost.equals(bs.listPGhost);
+	}
+
+	public int hashCode() {
+		long hash = this.getHash();
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * return a 64 bits hash of the state: the Zobrist hash combined with the score, the number of lifes and the fear of the ghosts
+	 * @return the hash of the state
+	 */
+	public long getHash() {
+		long hash = this.zobrist;
+		hash = 31 * hash + this.score;
+		hash = 31 * hash + this.life;
+		for(int peur: this.compteurPeur) {
+			hash = 31 * hash + peur;
+		}
+		return hash;
+	}
+
+	/**
+	 * return the Zobrist key associated to an element of the state
+	 * @param kind kind of element (0 for Pacman, 1 for a gum, 2 for a super gum, 3 + k for the ghost k)
+	 * @param index index of the element (cell, or cell * 4 + direction)
+	 * @return the key of the element
+	 */
+	private static long zobristKey(int kind, int index) {
+		long z = (((long)kind << 32) | index) + 0x9E3779B97F4A7C15L;//SplitMix64
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	static int directionIndex(char dir) {
+		switch(dir) {
+		case 'D': return 1;
+		case 'L': return 2;
+		case 'R': return 3;
+		default: return 0;
+		}
+	}
+
+	private static long pacmanKey(int cell, char dir) {
+		return BeliefState.zobristKey(0, cell * 4 + BeliefState.directionIndex(dir));
+	}
+
+	private static long ghostKey(int k, int index) {
+		return BeliefState.zobristKey(3 + k, index);
+	}
 	
 	/**
 	 * construct a copy of the state
@@ -239,30 +258,41 @@ public class BeliefState implements Comparable{
 	 */
 
 	public BeliefState(BeliefState toCopy, boolean isDead) {
-		this(BeliefState.taille, toCopy.score, toCopy.life);
-		this.pacmanPos.dir = toCopy.pacmanPos.dir;
-		for(int i = 0; i < this.map.length; i++) {
-			for(int j = 0; j < this.map[i].length; j++) {
-				this.modifyMap(i, j, toCopy.map[i][j]);
-			}
-		}
-		this.pacmanOldPos = toCopy.pacmanOldPos.clone();
+		this.level = toCopy.level;
+		this.walls = toCopy.walls;
+		this.ghostHomes = toCopy.ghostHomes;
+		this.gumField = toCopy.gumField;
+		if(this.gumField != null)//le marqueur est dans le champ : la copie ne modifie pas toCopy
+			this.gumField.share();
+		this.gums = toCopy.gums.clone();
+		this.superGums = toCopy.superGums.clone();
+		this.nbrOfGommes = toCopy.nbrOfGommes;
+		this.nbrOfSuperGommes = toCopy.nbrOfSuperGommes;
+		this.score = toCopy.score;
+		this.life = toCopy.life;
+		this.palier = toCopy.palier;
+		this.pacmanCell = toCopy.pacmanCell;
+		this.pacmanDir = toCopy.pacmanDir;
+		this.pacmanOldCell = toCopy.pacmanOldCell;
+		this.pacmanOldDir = toCopy.pacmanOldDir;
+		this.zobrist = toCopy.zobrist;
+		this.ghostHashes = toCopy.ghostHashes.clone();
+		this.listPGhost = new ArrayList<PositionSet>(toCopy.listPGhost.size());
 		if(!isDead) {
-			this.listPGhost.clear();
-			for(TreeSet<Position> listP: toCopy.listPGhost) {
-				TreeSet<Position> newListP = new TreeSet<Position>();
-				for(Position pos: listP.descendingSet()) {
-					newListP.add(pos.clone());
-				}
-				this.listPGhost.add(newListP);
-			}
-			for(int i = 0; i < toCopy.compteurPeur.size(); i++) {
-				this.compteurPeur.set(i, toCopy.compteurPeur.get(i));
+			for(PositionSet listP: toCopy.listPGhost) {
+				this.listPGhost.add(new PositionSet(listP));
 			}
+			this.compteurPeur = toCopy.compteurPeur.clone();
 		}
-		else {
+		else {//Pacman et les ghosts retournent a leur position initiale
+			this.compteurPeur = new int[toCopy.compteurPeur.length];
+			for(int k = 0; k < this.level.getNbrOfGhosts(); k++) {
+				this.listPGhost.add(null);
+				this.setGhostPosition(k, this.level.getGhostHome(k));
+			}
 			this.life = toCopy.life - 1;
-			this.moveTo(BeliefState.pacmanYInit / BeliefState.tailleCase, BeliefState.pacmanXInit / BeliefState.tailleCase, 'U');
+			Position home = this.level.getPacmanHome();
+			this.moveTo(home.x, home.y, 'U');
 		}
 	}
 
@@ -273,14 +303,82 @@ public class BeliefState implements Comparable{
 	 * @param val value coressponding to the content of the square
 	 */
 	public void modifyMap(int i, int j, char val) {
+		this.checkMutable();
+		int cell = i * this.level.getTaille() + j;
+		if(BitBoard.get(this.gums, cell))
+			this.zobrist ^= BeliefState.zobristKey(1, cell);
+		if(BitBoard.get(this.superGums, cell))
+			this.zobrist ^= BeliefState.zobristKey(2, cell);
+		BitBoard.clear(this.walls, cell);
+		BitBoard.clear(this.gums, cell);
+		BitBoard.clear(this.superGums, cell);
+		BitBoard.clear(this.ghostHomes, cell);
+		this.gumField = null;
 		switch(val) {
-		case '.': nbrOfGommes++; break;
-		case '*': nbrOfGommes++; nbrOfSuperGommes++; break;
-		case 'P': this.pacmanPos.x = i;this.pacmanPos.y = j; break;
-		case 'F': TreeSet<Position> posGhost = new TreeSet<Position>(); Position pos = new Position(i, j, 'U'); posGhost.add(pos); this.listPGhost.add(posGhost); this.compteurPeur.add(0);  break;
-		case 'B': this.pacmanPos.x = i;this.pacmanPos.y = j; TreeSet<Position> posGhost2 = new TreeSet<Position>(); Position pos2 = new Position(i, j, 'U'); posGhost2.add(pos2); this.listPGhost.add(posGhost2); this.compteurPeur.add(0); break;
+		case '#': BitBoard.set(this.walls, cell); break;
+		case '.': nbrOfGommes++; BitBoard.set(this.gums, cell); this.zobrist ^= BeliefState.zobristKey(1, cell); break;
+		case '*': nbrOfGommes++; nbrOfSuperGommes++; BitBoard.set(this.gums, cell); BitBoard.set(this.superGums, cell); this.zobrist ^= BeliefState.zobristKey(1, cell) ^ BeliefState.zobristKey(2, cell); break;
+		case 'P': this.setPacman(cell, this.pacmanDir); break;
+		case 'F': BitBoard.set(this.ghostHomes, cell); this.addGhost(i, j); break;
+		case 'B': this.setPacman(cell, this.pacmanDir); BitBoard.set(this.ghostHomes, cell); this.addGhost(i, j); break;
 		}
-		this.map[i][j] = val;
+	}
+
+	/**
+	 * add a new ghost at a given position
+	 * @param i row of the ghost
+	 * @param j column of the ghost
+	 */
+	private void addGhost(int i, int j) {
+		this.compteurPeur = Arrays.copyOf(this.compteurPeur, this.compteurPeur.length + 1);
+		this.ghostHashes = Arrays.copyOf(this.ghostHashes, this.ghostHashes.length + 1);
+		this.listPGhost.add(null);
+		this.setGhostPosition(this.listPGhost.size() - 1, new Position(i, j, 'U'));
+	}
+
+	/**
+	 * set a single possible position for one of the ghosts
+	 * @param k Id of the ghost
+	 * @param pos the position of the ghost
+	 */
+	private void setGhostPosition(int k, Position pos) {
+		PositionSet posGhost = new PositionSet(this.level);
+		posGhost.add(pos);
+		long hash = BeliefState.ghostKey(k, posGhost.index(pos));
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(k, this.ghostHashes[k], this.listPGhost.get(k)));
+		this.zobrist ^= this.ghostHashes[k] ^ hash;
+		this.ghostHashes[k] = hash;
+		this.listPGhost.set(k, posGhost);
+	}
+
+	/**
+	 * replace the set of possible positions of one of the ghosts
+	 * @param k Id of the ghost
+	 * @param posGhost the possible positions of the ghost
+	 */
+	void setGhostPositions(int k, PositionSet posGhost) {
+		this.checkMutable();
+		long hash = 0;
+		for(int index = posGhost.nextIndex(0); index >= 0; index = posGhost.nextIndex(index + 1)) {
+			hash ^= BeliefState.ghostKey(k, index);
+		}
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(k, this.ghostHashes[k], this.listPGhost.get(k)));
+		this.zobrist ^= this.ghostHashes[k] ^ hash;
+		this.ghostHashes[k] = hash;
+		this.listPGhost.set(k, posGhost);
+	}
+
+	/**
+	 * change the position and the direction of Pacman
+	 * @param cell new cell of Pacman
+	 * @param dir new direction of Pacman
+	 */
+	private void setPacman(int cell, char dir) {
+		this.zobrist ^= BeliefState.pacmanKey(this.pacmanCell, this.pacmanDir) ^ BeliefState.pacmanKey(cell, dir);
+		this.pacmanCell = cell;
+		this.pacmanDir = dir;
 	}
 
 	/**
@@ -297,601 +395,252 @@ public class BeliefState implements Comparable{
 	 * @return list of possible states that can be the results of the action performed by Pacman
 	 */
 	public Result extendsBeliefState(String toward) {
-		BeliefState stateRemoved = null;
+		return this.extendsBeliefState(toward, Long.MAX_VALUE);
+	}
+
+	/**
+	 * create all possible states resulting from a given action of Pacman, unless a deadline passes during the computation
+	 * @param toward describe the action performed by Pacman (PacmanLuncher.UP/DOWN/LEFT/RIGHT)
+	 * @param deadline date (System.nanoTime()) at which the computation is given up, Long.MAX_VALUE for none
+	 * @return list of possible states that can be the results of the action performed by Pacman, null if the deadline has passed
+	 */
+	Result extendsBeliefState(String toward, long deadline) {
+		int action = BeliefState.directionIndex(toward.charAt(0));
+		Result result = this.level.getTranspositionTable().get(this, action);
+		if(result == null) {
+			result = this.computeExtendsBeliefState(toward, deadline);
+			if(result != null)
+				this.level.getTranspositionTable().put(this, action, result);
+		}
+		return result;
+	}
+
+	/**
+	 * compute all possible states resulting from a given action of Pacman (without looking at the transposition table)
+	 * @param toward describe the action performed by Pacman (PacmanLuncher.UP/DOWN/LEFT/RIGHT)
+	 * @return list of possible states that can be the results of the action performed by Pacman
+	 */
+	Result computeExtendsBeliefState(String toward) {
+		return this.computeExtendsBeliefState(toward, Long.MAX_VALUE);
+	}
+
+	/**
+	 * compute all possible states resulting from a given action of Pacman (without looking at the transposition table);
+	 * the deadline is checked before moving the ghosts of each state found
+	 * @param toward describe the action performed by Pacman (PacmanLuncher.UP/DOWN/LEFT/RIGHT)
+	 * @param deadline date (System.nanoTime()) at which the computation is given up, Long.MAX_VALUE for none
+	 * @return list of possible states that can be the results of the action performed by Pacman, null if the deadline has passed
+	 */
+	private Result computeExtendsBeliefState(String toward, long deadline) {
+		BeliefState next = this.movePacman(BeliefState.directionIndex(toward.charAt(0)));
 		ArrayList<BeliefState> listAlternativeBeliefState = new ArrayList<BeliefState>();
-		BeliefState currentBeliefState = null;
-		char currentPos = this.map[this.pacmanPos.x][this.pacmanPos.y];
-		switch(toward.charAt(0)) {
-		case 'U': if(pacmanPos.x > 0) {
-			char nextPos = this.map[this.pacmanPos.x - 1][this.pacmanPos.y];
-			if(nextPos != '#') {
-				currentBeliefState = this.move(-1, 0, nextPos, 'U');
-				if(nextPos == '*') {
-					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
-					}
-				}
-			}
-			else {
-				currentBeliefState = this.move(0, 0, currentPos, 'U');
-			}
-		} else {
-			currentBeliefState = this.move(0, 0, currentPos, 'U');
-		} break;
-		case 'D': if(this.pacmanPos.x + 1 < this.map.length) {
-			char nextPos = this.map[this.pacmanPos.x + 1][this.pacmanPos.y];
-			if(nextPos != '#') {
-				currentBeliefState = this.move(1, 0, nextPos, 'D');
-				if(nextPos == '*') {
-					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
-					}
+		if(next.isCaughtByGhost()) {//PacMan s'est deplace a la place d'un ghost qui n'a pas peur
+			listAlternativeBeliefState.add(new BeliefState(next, true));
+			return new Result(listAlternativeBeliefState);
+		}
+		listAlternativeBeliefState.add(next);
+		Expansion expansion = new Expansion(this.pacmanCell, this.level);
+		for(int k = 0; k < next.compteurPeur.length; k++) {//pour chaque fantome
+			for(int indexBeliefState = 0; indexBeliefState < listAlternativeBeliefState.size(); indexBeliefState++) {//pour chaque BeliefState deja trouve
+				if(deadline != Long.MAX_VALUE && System.nanoTime() > deadline)//calcul abandonne, rien n'est garde
+					return null;
+				if(!listAlternativeBeliefState.get(indexBeliefState).moveGhostPositions(k, expansion)) {
+					listAlternativeBeliefState.remove(indexBeliefState--);
 				}
 			}
-			else {
-				currentBeliefState = this.move(0, 0, currentPos, 'D');
+			listAlternativeBeliefState.addAll(expansion.split);
+			expansion.split.clear();
+		}
+		if(expansion.dead != null) {
+			listAlternativeBeliefState.add(expansion.dead);
+		}
+		return new Result(listAlternativeBeliefState);
+	}
+
+	/**
+	 * create the state where Pacman performs an action, Pacman stays on its cell if the action leads into a wall
+	 * @param d index of the action (see directionIndex)
+	 * @return the state resulting from the action of Pacman (ghosts not moved yet)
+	 */
+	BeliefState movePacman(int d) {
+		int nextCell = this.neighbour(this.pacmanCell, d);
+		if(nextCell < 0 || BitBoard.get(this.walls, nextCell)) {
+			return this.move(0, 0, this.getMap(this.pacmanRow(), this.pacmanColumn()), DIRECTIONS[d]);
+		}
+		return this.move(DELTA_ROW[d], DELTA_COLUMN[d], this.getMap(nextCell / this.level.getTaille(), nextCell % this.level.getTaille()), DIRECTIONS[d]);
+	}
+
+	/**
+	 * test if Pacman is on the cell of a ghost which is not afraid and whose position is known
+	 * @return true if Pacman is dead
+	 */
+	private boolean isCaughtByGhost() {
+		int row = this.pacmanRow(), column = this.pacmanColumn();
+		for(int k = 0; k < this.compteurPeur.length; k++) {
+			PositionSet posGhost = this.listPGhost.get(k);
+			if(this.compteurPeur[k] == 0 && posGhost.size() == 1 && posGhost.containsCell(row, column)) {
+				return true;
 			}
 		}
-		else{
-			currentBeliefState = this.move(0, 0, currentPos, 'D');
-		} break;
-		case 'L': if(this.pacmanPos.y > 0) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y - 1];
-			if(nextPos != '#') {
-				currentBeliefState = this.move(0, -1, nextPos, 'L');
-				if(nextPos == '*') {
-					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
-					}
-				}
+		return false;
+	}
+
+	/**
+	 * move all the possible positions of a ghost after the move of Pacman.
+	 * The positions where the ghost becomes visible (or is eaten) are put in new states added to the expansion,
+	 * the other ones stay in this state.
+	 * @param k Id of the ghost
+	 * @param expansion states found during the current expansion
+	 * @return false if no position is left in this state (the state has to be removed)
+	 */
+	private boolean moveGhostPositions(int k, Expansion expansion) {
+		int compteurPeur = this.compteurPeur[k];
+		if(compteurPeur > 0) {//decremente le compteur de peur
+			this.setCompteurPeur(k, compteurPeur - 2);
+		}
+		PositionSet newPosGhost = new PositionSet(this.level);
+		expansion.splitPositions.clear();
+		int oldRow = expansion.oldCell / this.level.getTaille(), oldColumn = expansion.oldCell % this.level.getTaille();
+		for(Position posG: this.listPGhost.get(k)) {//pour chaque position possible du ghost
+			if(compteurPeur == 0 && this.isVisible(posG.x, posG.y, oldRow, oldColumn)) {//si le ghost est visible et n'est pas effraye
+				this.chaseGhostPosition(posG, oldRow, oldColumn, newPosGhost, expansion);
 			}
 			else {
-				currentBeliefState = this.move(0, 0, currentPos, 'L');
-			}
-		}
-		else{
-			currentBeliefState = this.move(0, 0, currentPos, 'L');
-		} break;
-		case 'R': if(this.pacmanPos.y + 1 < this.map[0].length) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y + 1];
-			if(nextPos != '#') {
-				currentBeliefState = this.move(0, 1, nextPos, 'R');
-				if(nextPos == '*') {
-					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
+				int moves = this.ghostMoves(posG);
+				for(int d = 0; d < 4; d++) {
+					if((moves & (1 << d)) != 0) {
+						this.moveGhostPosition(k, posG, d, compteurPeur, newPosGhost, expansion);
 					}
 				}
 			}
-			else {
-				currentBeliefState = this.move(0, 0, currentPos, 'R');
-			}
+		}
+		if(newPosGhost.isEmpty()) {
+			return false;
+		}
+		this.setGhostPositions(k, newPosGhost);
+		return true;
+	}
+
+	/**
+	 * move a position of a ghost which sees Pacman: the ghost moves toward the previous position of Pacman
+	 * @param posG the position of the ghost
+	 * @param oldRow row of Pacman before its move
+	 * @param oldColumn column of Pacman before its move
+	 * @param newPosGhost the positions of the ghost kept in this state
+	 * @param expansion states found during the current expansion
+	 */
+	private void chaseGhostPosition(Position posG, int oldRow, int oldColumn, PositionSet newPosGhost, Expansion expansion) {
+		int d = BeliefState.chaseDirection(posG, oldRow, oldColumn);
+		int row = posG.x + DELTA_ROW[d], column = posG.y + DELTA_COLUMN[d];
+		if(row * this.level.getTaille() + column == this.pacmanCell) {//si apres deplacement le ghost se trouve sur la meme case que Pacman
+			expansion.kill(this);
 		}
 		else {
-			currentBeliefState = this.move(0, 0, currentPos, 'R');
-		} break;
-		}
-
-		boolean dead = false;
-		int l = 0;
-		for(TreeSet<Position> treeSet: this.listPGhost) {//test pour chaque ghost si il se trouve sur la case de PacMan et qu'il n'a pas peur (en gros PacMan mort)
-			if(currentBeliefState.compteurPeur.get(l++) == 0 && treeSet.size() == 1) {//ghost n'a pas peur et une seule position possible
-				Position pos = treeSet.first();
-				if(pos.x == currentBeliefState.pacmanPos.x && pos.y == currentBeliefState.pacmanPos.y) {//si le PacMan s'est deplace a la place du ghost
-					dead = true;//le PacMan est mort
-					break;
-				}
+			newPosGhost.add(new Position(row, column, DIRECTIONS[d]));
+		}
+	}
+
+	/**
+	 * return the direction followed by a ghost which sees Pacman: toward the previous position of Pacman
+	 * @param posG the position of the ghost
+	 * @param oldRow row of Pacman before its move
+	 * @param oldColumn column of Pacman before its move
+	 * @return index of the direction (see directionIndex)
+	 */
+	private static int chaseDirection(Position posG, int oldRow, int oldColumn) {
+		if(posG.x != oldRow)
+			return posG.x > oldRow ? 0 : 1;
+		return posG.y < oldColumn ? 3 : 2;
+	}
+
+	/**
+	 * compute the positions reached by one possible position of a ghost, after the move of Pacman which led to this state
+	 * (same rules as computeExtendsBeliefState, for a single ghost and without creating any state)
+	 * @param posG the position of the ghost
+	 * @param compteurPeur fear counter of the ghost before its move
+	 * @param successors filled with the positions reached by the ghost, null when the ghost meets Pacman (it kills Pacman, or is eaten if it is afraid)
+	 * @return the number of positions put in successors (at most 4)
+	 */
+	int ghostSuccessors(Position posG, int compteurPeur, Position[] successors) {
+		int oldRow = this.pacmanOldCell / this.level.getTaille(), oldColumn = this.pacmanOldCell % this.level.getTaille();
+		if(compteurPeur == 0 && this.isVisible(posG.x, posG.y, oldRow, oldColumn)) {//le ghost voit Pacman : il le poursuit
+			int d = BeliefState.chaseDirection(posG, oldRow, oldColumn);
+			int row = posG.x + DELTA_ROW[d], column = posG.y + DELTA_COLUMN[d];
+			successors[0] = row * this.level.getTaille() + column == this.pacmanCell ? null : new Position(row, column, DIRECTIONS[d]);
+			return 1;
+		}
+		int moves = this.ghostMoves(posG), cell = posG.x * this.level.getTaille() + posG.y, n = 0;
+		for(int d = 0; d < 4; d++) {
+			if((moves & (1 << d)) != 0) {
+				int newCell = this.neighbour(cell, d);
+				if(newCell == this.pacmanCell || (cell == this.pacmanCell && newCell == this.pacmanOldCell))//le ghost et Pacman se rencontrent
+					successors[n++] = null;
+				else
+					successors[n++] = new Position(posG.x + DELTA_ROW[d], posG.y + DELTA_COLUMN[d], DIRECTIONS[d]);
 			}
 		}
-		if(dead) {
-			listAlternativeBeliefState.add(new BeliefState(currentBeliefState, true));//ajoute un etat ou PacMan est mort
+		return n;
+	}
+
+	/**
+	 * return the moves allowed to a ghost which does not see Pacman: the ghost never turns back at a crossing,
+	 * goes straight on in a corridor, and turns back in a dead end
+	 * @param posG the position of the ghost
+	 * @return the allowed directions, as a mask with the bit directionIndex(dir) set for each allowed direction
+	 */
+	private int ghostMoves(Position posG) {
+		int cell = posG.x * this.level.getTaille() + posG.y, available = 0;
+		for(int d = 0; d < 4; d++) {
+			int nextCell = this.neighbour(cell, d);
+			if(nextCell >= 0 && !BitBoard.get(this.walls, nextCell)) {
+				available |= 1 << d;
+			}
 		}
-		else {
-			listAlternativeBeliefState.add(currentBeliefState);
-			for(int k = 0; k < currentBeliefState.compteurPeur.size(); k++) {//pour chaque fantome
-				ArrayList<BeliefState> tempListAlternativeBeliefState = new ArrayList<BeliefState>();
-
-				for(int indexBeliefState = 0; indexBeliefState < listAlternativeBeliefState.size(); indexBeliefState++) {//pour chaque BeliefState deja trouve
-					BeliefState state = listAlternativeBeliefState.get(indexBeliefState); 
-					int compteurPeur = state.compteurPeur.get(k);
-					if (compteurPeur > 0) {//decremente le compteur de peur
-						state.compteurPeur.set(k, compteurPeur - 2);
-					}
-					TreeSet<Position> posGhost = state.listPGhost.get(k), newPosGhost = new TreeSet<Position>();
-					Iterator<Position> itPos = posGhost.iterator();
-					HashSet<String> hAlternativePos = new HashSet<String>();
-					while(itPos.hasNext()) {//pour chauqe position possible du ghost
-						Position posG = itPos.next();
-						boolean haveMoved = false;
-						if(BeliefState.isVisible(posG.x, posG.y, this.pacmanPos.x, this.pacmanPos.y) && compteurPeur == 0) {//si le ghost est visible et n'est pas effraye
-							/*if(posGhost.size() > 1) {
-								Position newPos = posG.clone();
-								BeliefState actualBeliefState = new BeliefState(state, false);
-								actualBeliefState.listPGhost.get(k).clear();
-								boolean isDead = false;
-								if(newPos.x > state.pacmanPos.x) {
-									newPos.x--;
-									newPos.dir = 'U';
-									if(newPos.x == state.pacmanPos.x)
-										isDead = true;
-								}
-								else {
-									if(newPos.x < state.pacmanPos.x) {
-										newPos.x++;
-										newPos.dir = 'D';
-										if(newPos.x == state.pacmanPos.x)
-											isDead = true;
-									}
-									else {
-										if(newPos.y < state.pacmanPos.y) {
-											newPos.y++;
-											newPos.dir = 'R';
-											if(newPos.y == state.pacmanPos.y)
-												isDead = true;
-										}
-										else {
-											if(newPos.y > state.pacmanPos.y) {
-												newPos.y--;
-												newPos.dir = 'L';
-												if(newPos.y == state.pacmanPos.y)
-													isDead = true;
-											}
-											else
-												isDead = true;
-										}
-									}
-								}
-								if(isDead) {
-									if(stateRemoved == null)
-										stateRemoved = new BeliefState(actualBeliefState, true);
-								}
-								else {
-									actualBeliefState.listPGhost.get(k).add( newPos.clone());
-									if(!hAlternativePos.contains(newPos.toString())) {
-										tempListAlternativeBeliefState.add(actualBeliefState);
-										hAlternativePos.add(newPos.toString());
-									}
-								}
-							}
-							else {*/
-								Position newPos = posG.clone();
-								if(newPos.x > this.pacmanPos.x) {//le ghost effectue son mouvement dans la direction de Pacman
-									newPos.x--;
-									newPos.dir = 'U';
-								}
-								else {
-									if(newPos.x < this.pacmanPos.x) {
-										newPos.x++;
-										newPos.dir = 'D';
-									}
-									else {
-										if(newPos.y < this.pacmanPos.y) {
-											newPos.y++;
-											newPos.dir = 'R';
-										}
-										else {
-											newPos.y--;
-											newPos.dir = 'L';
-										}
-									}
-								}
-								if(newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) {//si apres deplacement le ghost se trouve sur la meme case que Pacman
-									if(stateRemoved == null)
-										stateRemoved = new BeliefState(state, true);//cree un etat ou Pacman est mort
-								}
-								else{
-									newPosGhost.add(newPos);
-								}
-							//}
-							haveMoved = true;//le ghost s'est deplace
-						}
-						else {//si le ghost n'est pas visible ou qu'il a peur
-							ArrayList<Position> caseAround =  new ArrayList<Position>();//on regarde quelles sont les mouvement possibles pour le ghost
-							boolean rightAvailable = false, leftAvailable = false, upAvailable = false, downAvailable = false;
-							if(posG.x > 0 && state.map[posG.x - 1][posG.y] != '#') {
-								caseAround.add(new Position(posG.x - 1, posG.y, 'U'));
-								upAvailable = true;
-							}
-							if(posG.x + 1 < state.map.length && state.map[posG.x + 1][posG.y] != '#') {
-								caseAround.add(new Position(posG.x + 1, posG.y, 'D'));
-								downAvailable = true;
-							}
-							if(posG.y > 0 && state.map[posG.x][posG.y - 1] != '#') {
-								caseAround.add(new Position(posG.x, posG.y - 1, 'L'));
-								leftAvailable = true;
-							}
-							if(posG.y + 1 < state.map[0].length && state.map[posG.x][posG.y + 1] != '#') {
-								caseAround.add(new Position(posG.x, posG.y + 1, 'R'));
-								rightAvailable = true;
-							}
-
-							switch (posG.dir) {
-							case 'U' :
-								if (leftAvailable || rightAvailable) {
-									if(downAvailable) {
-										caseAround.remove(upAvailable?1:0);
-									}
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								} else if (!upAvailable) {
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								}
-								break;
-							case 'D' :
-								if (leftAvailable || rightAvailable) {
-									if(upAvailable) {
-										caseAround.remove(0);
-									}
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								} else if (!downAvailable) {
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								}
-								break;
-							case 'L' :
-								if (upAvailable || downAvailable) {
-									if(rightAvailable) {
-										caseAround.remove((upAvailable?1:0)+(downAvailable?1:0)+(leftAvailable?1:0));
-
-									}
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								} else if (!leftAvailable) {
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								}
-								break;
-							case 'R' :
-								if (upAvailable || downAvailable) {
-									if(leftAvailable) {
-										caseAround.remove((upAvailable?1:0)+(downAvailable?1:0));
-									}
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								} else if (!rightAvailable) {
-									for(Position newPos: caseAround) {
-										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
-												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
-											}
-											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												actualBeliefState.score += Ghost.SCORE_FANTOME;
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-										}
-										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
-												if(!hAlternativePos.contains(newPos.toString())) {
-													tempListAlternativeBeliefState.add(actualBeliefState);
-													hAlternativePos.add(newPos.toString());
-												}
-											}
-											else {
-												newPosGhost.add(newPos);
-											}
-										}
-									}
-									haveMoved = true;
-								}
-								break;
-							}	
-						}									
-						if (!haveMoved) {
-							Position newPos = posG.clone();
-							switch(posG.dir) {
-							case 'U': newPos.x--; break;
-							case 'D': newPos.x++; break;
-							case 'L': newPos.y--; break;
-							case 'R': newPos.y++; break;
-							}
-							if(compteurPeur > 0) {//si le ghost est en etat de peur
-								if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//si il se trouve sur la meme case que Pacman ou si ils se sont croises
-									newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');//le ghost a ete mange
-									BeliefState actualBeliefState = new BeliefState(state, false);
-									actualBeliefState.listPGhost.get(k).clear();
-									actualBeliefState.compteurPeur.set(k, 0);
-									actualBeliefState.listPGhost.get(k).add(newPos);
-									actualBeliefState.score += Ghost.SCORE_FANTOME;
-									if(!hAlternativePos.contains(newPos.toString())) {
-										tempListAlternativeBeliefState.add(actualBeliefState);
-										hAlternativePos.add(newPos.toString());
-									}
-								}
-								else {
-									if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-										BeliefState actualBeliefState = new BeliefState(state, false);
-										actualBeliefState.listPGhost.get(k).clear();
-										actualBeliefState.listPGhost.get(k).add(newPos);
-										if(!hAlternativePos.contains(newPos.toString())) {
-											tempListAlternativeBeliefState.add(actualBeliefState);
-											hAlternativePos.add(newPos.toString());
-										}
-									}
-									else {
-										newPosGhost.add(newPos);
-									}
-								}
-							}
-							else {
-								if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
-									if(stateRemoved == null)
-										stateRemoved = new BeliefState(state, true);
-								}
-								else {
-									if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-										BeliefState actualBeliefState = new BeliefState(state, false);
-										actualBeliefState.listPGhost.get(k).clear();
-										actualBeliefState.listPGhost.get(k).add(newPos);
-										if(!hAlternativePos.contains(newPos.toString())) {
-											tempListAlternativeBeliefState.add(actualBeliefState);
-											hAlternativePos.add(newPos.toString());
-										}
-									}
-									else {
-										newPosGhost.add(newPos);
-									}
-								}
-							}
-						}
-					}
-					if(newPosGhost.isEmpty()) {
-						listAlternativeBeliefState.remove(indexBeliefState--);
-					}
-					else {
-						state.listPGhost.set(k, newPosGhost);
-					}
+		int forward = BeliefState.directionIndex(posG.dir);
+		if((available & PERPENDICULAR[forward]) != 0)
+			return available & ~(1 << OPPOSITE[forward]);
+		if((available & (1 << forward)) != 0)
+			return 1 << forward;
+		return available;
+	}
+
+	/**
+	 * move a position of a ghost in a given direction
+	 * @param k Id of the ghost
+	 * @param posG the position of the ghost
+	 * @param d index of the direction followed by the ghost (see directionIndex)
+	 * @param compteurPeur fear counter of the ghost before the move
+	 * @param newPosGhost the positions of the ghost kept in this state
+	 * @param expansion states found during the current expansion
+	 */
+	private void moveGhostPosition(int k, Position posG, int d, int compteurPeur, PositionSet newPosGhost, Expansion expansion) {
+		Position newPos = new Position(posG.x + DELTA_ROW[d], posG.y + DELTA_COLUMN[d], DIRECTIONS[d]);
+		int cell = posG.x * this.level.getTaille() + posG.y, newCell = newPos.x * this.level.getTaille() + newPos.y;
+		if(newCell == this.pacmanCell || (cell == this.pacmanCell && newCell == expansion.oldCell)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
+			if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
+				expansion.kill(this);
+			}
+			else {//si le ghost etait dans un etat de peur alors il a ete mange
+				Position home = this.level.getGhostHome(k);
+				if(expansion.splitPositions.add(home)) {
+					BeliefState actualBeliefState = new BeliefState(this, false);
+					actualBeliefState.compteurPeur[k] = 0;
+					actualBeliefState.setGhostPosition(k, home);
+					actualBeliefState.score += Ghost.SCORE_FANTOME;
+					expansion.split.add(actualBeliefState);
 				}
-				listAlternativeBeliefState.addAll(tempListAlternativeBeliefState);
 			}
-			if(stateRemoved != null) {
-				listAlternativeBeliefState.add(stateRemoved);
+		}
+		else if(this.isVisible(newPos.x, newPos.y, this.pacmanRow(), this.pacmanColumn())) {//le ghost devient visible : sa position est connue dans un nouvel etat
+			if(expansion.splitPositions.add(newPos)) {
+				BeliefState actualBeliefState = new BeliefState(this, false);
+				actualBeliefState.setGhostPosition(k, newPos);
+				expansion.split.add(actualBeliefState);
 			}
 		}
-		return new Result(listAlternativeBeliefState);
+		else {
+			newPosGhost.add(newPos);
+		}
 	}
 
 	/**
@@ -902,54 +651,83 @@ public class BeliefState implements Comparable{
 		Plans plans = new Plans();
 		if(this.life <= 0)
 			return plans;
-		ArrayList<String> listNull = new ArrayList<String>();
-		if(pacmanPos.x > 0) {
-			char nextPos = this.map[this.pacmanPos.x - 1][this.pacmanPos.y];
-			if(nextPos != '#') {
-				ArrayList<String> listUp = new ArrayList<String>();
-				listUp.add(PacManLauncher.UP);
-				plans.addPlan(this.extendsBeliefState(PacManLauncher.UP), listUp);
-			}
-			else {
-				listNull.add(PacManLauncher.UP);
+		ArrayList<ArrayList<String>> listActions = this.groupActions();
+		if(BeliefState.parallelThreshold > 0 && listActions.size() > 1 && this.nbrOfGhostPositions() >= BeliefState.parallelThreshold) {
+			ArrayList<ForkJoinTask<Result>> tasks = new ArrayList<ForkJoinTask<Result>>();
+			for(ArrayList<String> listAction: listActions) {
+				final String action = listAction.get(0);
+				tasks.add(ForkJoinTask.adapt(() -> this.extendsBeliefState(action)));
 			}
-		}
-		if(this.pacmanPos.x + 1 < this.map.length) {
-			char nextPos = this.map[this.pacmanPos.x + 1][this.pacmanPos.y];
-			if(nextPos != '#') {
-				ArrayList<String> listDown = new ArrayList<String>();
-				listDown.add(PacManLauncher.DOWN);
-				plans.addPlan(this.extendsBeliefState(PacManLauncher.DOWN), listDown);
-			}
-			else {
-				listNull.add(PacManLauncher.DOWN);
+			ForkJoinTask.invokeAll(tasks);//les taches sont executees par le pool commun, une par le thread courant
+			for(int i = 0; i < listActions.size(); i++) {
+				plans.addPlan(tasks.get(i).join(), listActions.get(i));
 			}
 		}
-		if(this.pacmanPos.y > 0) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y - 1];
-			if(nextPos != '#') {
-				ArrayList<String> listLeft = new ArrayList<String>();
-				listLeft.add(PacManLauncher.LEFT);
-				plans.addPlan(this.extendsBeliefState(PacManLauncher.LEFT), listLeft);
-			}
-			else {
-				listNull.add(PacManLauncher.LEFT);
+		else {
+			for(ArrayList<String> listAction: listActions) {
+				plans.addPlan(this.extendsBeliefState(listAction.get(0)), listAction);
 			}
 		}
-		if(this.pacmanPos.y + 1 < this.map[0].length) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y + 1];
-			if(nextPos != '#') {
-				ArrayList<String> listRight = new ArrayList<String>();
-				listRight.add(PacManLauncher.RIGHT);
-				plans.addPlan(this.extendsBeliefState(PacManLauncher.RIGHT), listRight);
-			}
-			else {
-				listNull.add(PacManLauncher.RIGHT);
+		return plans;
+	}
+
+	/**
+	 * list the actions of Pacman as extendsBeliefState() groups them: one group per move toward an open cell,
+	 * and one group with all the moves into a wall (Pacman stays on its cell, they all give the same states)
+	 * @return the groups of equivalent actions, empty if Pacman has no life left
+	 */
+	ArrayList<ArrayList<String>> groupActions() {
+		ArrayList<ArrayList<String>> listActions = new ArrayList<ArrayList<String>>();
+		if(this.life <= 0)
+			return listActions;
+		ArrayList<String> listNull = new ArrayList<String>();
+		for(int d = 0; d < 4; d++) {
+			int nextCell = this.neighbour(this.pacmanCell, d);
+			if(nextCell >= 0) {
+				if(!BitBoard.get(this.walls, nextCell)) {
+					ArrayList<String> listAction = new ArrayList<String>();
+					listAction.add(ACTIONS[d]);
+					listActions.add(listAction);
+				}
+				else {
+					listNull.add(ACTIONS[d]);
+				}
 			}
 		}
 		if(listNull.size() > 0)
-			plans.addPlan(this.extendsBeliefState(listNull.get(0)), listNull);
-		return plans;
+			listActions.add(listNull);
+		return listActions;
+	}
+
+	/**
+	 * enable the parallel mode of extendsBeliefState(): the actions of Pacman are expanded on the common ForkJoin pool
+	 * when the ghosts have at least a given number of possible positions (smaller states stay sequential)
+	 * @param threshold minimal number of possible positions of the ghosts, 0 to disable the parallel mode
+	 */
+	public static void setParallelExpansion(int threshold) {
+		BeliefState.parallelThreshold = threshold;
+	}
+
+	/**
+	 * return the number of possible positions of the ghosts (sum over all the ghosts)
+	 * @return the number of possible positions
+	 */
+	private int nbrOfGhostPositions() {
+		int nbr = 0;
+		for(PositionSet posGhost: this.listPGhost) {
+			nbr += posGhost.size();
+		}
+		return nbr;
+	}
+
+	/**
+	 * return the cell reached by a move from a given cell
+	 * @param cell index of the cell (row * taille + column)
+	 * @param d index of the direction of the move (see directionIndex)
+	 * @return the cell reached, -1 if the move leaves the grid
+	 */
+	private int neighbour(int cell, int d) {
+		return this.level.neighbour(cell, d);
 	}
 
 	/**
@@ -959,7 +737,6 @@ public class BeliefState implements Comparable{
 	 * @param posG actual position of the ghost
 	 */
 	public static void filter(ArrayList<BeliefState> listBeliefState, int gId, Position posG) {
-		ArrayList<BeliefState> copy = (ArrayList<BeliefState>)listBeliefState.clone();
 		for(int i = 0; i < listBeliefState.size(); i++) {
 			BeliefState state = listBeliefState.get(i);
 			if(!state.listPGhost.get(gId).contains(posG)) {
@@ -983,31 +760,45 @@ public class BeliefState implements Comparable{
 	 */
 	public BeliefState move(int i, int j, char nextPos, char move) {
 		BeliefState nextBeliefState = new BeliefState(this, false);
-		if(nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] == 'B')
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'F';
-		else
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'O';
-		nextBeliefState.pacmanPos.x += i;
-		nextBeliefState.pacmanPos.y += j;
-		nextBeliefState.pacmanPos.dir = move;
+		nextBeliefState.setPacman(this.pacmanCell + i * this.level.getTaille() + j, move);
 		if(nextPos == '*' || nextPos == '.') {
-			nextBeliefState.nbrOfGommes--;
-			nextBeliefState.score += Gomme.SCORE_GOMME;
-			if(nextPos == '*') {
-				nextBeliefState.nbrOfSuperGommes--;
-				for(int k = 0; k < nextBeliefState.compteurPeur.size(); k++) {
-					nextBeliefState.compteurPeur.set(k, Ghost.TIME_PEUR);
-				}
-			}
+			nextBeliefState.eatGum(nextBeliefState.pacmanCell);
 		}
-		if(nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] == 'F')
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'B';
-		else
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'P';
-		nextBeliefState.pacmanOldPos = this.pacmanPos.clone();
+		nextBeliefState.pacmanOldCell = this.pacmanCell;
+		nextBeliefState.pacmanOldDir = this.pacmanDir;
 		return nextBeliefState;
 	}
 
+	/**
+	 * remove the gum of a given cell and update the score (and the fear of the ghosts for a super gum),
+	 * Pacman wins a life when the score reaches the palier
+	 * @param cell the cell where Pacman eats the gum
+	 */
+	private void eatGum(int cell) {
+		boolean isSuper = BitBoard.get(this.superGums, cell);
+		if(this.undoLog != null) {
+			if(isSuper)//seule une super gomme change la peur des ghosts
+				this.undoLog.add(new Undo(Undo.FEARS, 0, 0, this.compteurPeur.clone()));
+			this.undoLog.add(new Undo(Undo.GUM, cell, this.score, isSuper ? 1 : 0, this.palier));
+		}
+		this.nbrOfGommes--;
+		this.score += Gomme.SCORE_GOMME;
+		if(this.score >= this.palier) {
+			this.setLife(this.life + 1);
+			this.palier += Pacman.PALIER;
+		}
+		BitBoard.clear(this.gums, cell);
+		this.zobrist ^= BeliefState.zobristKey(1, cell);
+		if(this.gumField != null)
+			this.ownGumField().removeGum(cell);
+		if(isSuper) {
+			BitBoard.clear(this.superGums, cell);
+			this.zobrist ^= BeliefState.zobristKey(2, cell);
+			this.nbrOfSuperGommes--;
+			Arrays.fill(this.compteurPeur, Ghost.TIME_PEUR);
+		}
+	}
+
 	/**
 	 * move the Pacman at a given position
 	 * @param i number of rows added to the current position of Pacman
@@ -1016,42 +807,20 @@ public class BeliefState implements Comparable{
 	 * @return true if Pacman is dead after performing the move
 	 */
 	public boolean move(int i, int j, char move) {
-		this.pacmanOldPos = this.pacmanPos.clone();
-		if(this.map[this.pacmanPos.x + i][this.pacmanPos.y + j] != '#') {
-			if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'B')
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'F';
-			else
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'O';
-			this.pacmanPos.x += i;
-			this.pacmanPos.y += j;
-			this.pacmanPos.dir = move;
-			int l = 0;
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y];
-			if(nextPos != 'O' && nextPos != 'F') {
-				this.nbrOfGommes--;
-				this.score += Gomme.SCORE_GOMME;
-				if(nextPos == '*') {
-					this.nbrOfSuperGommes--;
-					for(int k = 0; k < this.compteurPeur.size(); k++) {
-						this.compteurPeur.set(k, Ghost.TIME_PEUR);
-					}
-				}
-			}
-			if(nextPos == 'F')
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'B';
-			else
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'P';
-			for(TreeSet<Position> treeSet: this.listPGhost) {
-				if(this.compteurPeur.get(l++) == 0 && treeSet.size() == 1) {
-					Position pos = treeSet.first();
-					if(pos.x == this.pacmanPos.x && pos.y == this.pacmanPos.y) {
-						return true;
-					}
-				}
+		this.checkMutable();
+		this.recordPacman();
+		this.pacmanOldCell = this.pacmanCell;
+		this.pacmanOldDir = this.pacmanDir;
+		int nextCell = this.pacmanCell + i * this.level.getTaille() + j;
+		if(!BitBoard.get(this.walls, nextCell)) {
+			this.setPacman(nextCell, move);
+			if(BitBoard.get(this.gums, nextCell)) {
+				this.eatGum(nextCell);
 			}
+			return this.isCaughtByGhost();
 		}
 		else {
-			this.pacmanPos.dir = move;
+			this.setPacman(this.pacmanCell, move);
 		}
 		return false;
 	}
@@ -1063,18 +832,11 @@ public class BeliefState implements Comparable{
 	 * @param move direction of the pacman
 	 */
 	public void moveTo(int i, int j, char move) {
-		if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'B')
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'F';
-		else
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'O';
-		this.pacmanPos.x = i;
-		this.pacmanPos.y = j;
-		this.pacmanPos.dir = move;
-		if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'F')
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'B';
-		else
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'P';
-		this.pacmanOldPos = this.pacmanPos.clone();
+		this.checkMutable();
+		this.recordPacman();
+		this.setPacman(i * this.level.getTaille() + j, move);
+		this.pacmanOldCell = this.pacmanCell;
+		this.pacmanOldDir = this.pacmanDir;
 	}
 
 	/**
@@ -1086,10 +848,11 @@ public class BeliefState implements Comparable{
 	 * @return true if the move performed by the ghost kill Pacman
 	 */
 	public int moveGhost(int i, int j, int k, char dir) {
+		this.checkMutable();
 		Position posGhost = this.listPGhost.get(k).first();
 
-		int compteurPeur = this.compteurPeur.get(k);
-		Position posPcopy = this.pacmanPos.clone();
+		int compteurPeur = this.compteurPeur[k];
+		Position posPcopy = this.getPacmanPos();
 		switch(posPcopy.dir) {
 		case 'U': posPcopy.x++; break;
 		case 'D': posPcopy.x--; break;
@@ -1097,35 +860,22 @@ public class BeliefState implements Comparable{
 		case 'R': posPcopy.y--; break;
 		}
 		if(compteurPeur > 0) {//si le ghost est en etat de peur
-			if((posGhost.x + i == this.pacmanPos.x && posGhost.y + j == this.pacmanPos.y) || (posGhost.x == this.pacmanPos.x && posGhost.y == this.pacmanPos.y && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
-				int[] initPosG = BeliefState.listPGhostInit.get(k);//le ghost est mange
-				this.moveGhostTo(initPosG[1] /  BeliefState.tailleCase, initPosG[0] / BeliefState.tailleCase, k, 'U');
-				this.score += Ghost.SCORE_FANTOME;
+			if((posGhost.x + i == this.pacmanRow() && posGhost.y + j == this.pacmanColumn()) || (posGhost.x == this.pacmanRow() && posGhost.y == this.pacmanColumn() && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
+				Position home = this.level.getGhostHome(k);//le ghost est mange
+				this.moveGhostTo(home.x, home.y, k, 'U');
+				this.setScore(this.score + Ghost.SCORE_FANTOME);
 				return -1;
 			}			
-			this.compteurPeur.set(k, compteurPeur - 2);
-			this.listPGhost.get(k).clear();
-			posGhost.x += i;
-			posGhost.y += j;
-			posGhost.dir = dir;
-			this.listPGhost.get(k).add(posGhost);
+			this.setCompteurPeur(k, compteurPeur - 2);
+			this.setGhostPosition(k, new Position(posGhost.x + i, posGhost.y + j, dir));
 			return 0;
 		}
 		else {//si le ghost n'est pas en etat de peur
-			if((posGhost.x + i == this.pacmanPos.x && posGhost.y + j == this.pacmanPos.y) || (posGhost.x == this.pacmanPos.x && posGhost.y == this.pacmanPos.y && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
-				this.life--;//alors Pacman meurt
-				this.moveTo(BeliefState.pacmanYInit / BeliefState.tailleCase, BeliefState.pacmanXInit / BeliefState.tailleCase, 'U');
-				for(int l = 0; l < BeliefState.listPGhostInit.size(); l++) {
-					int[] initPosG = BeliefState.listPGhostInit.get(l);
-					this.moveGhostTo(initPosG[1] / BeliefState.tailleCase, initPosG[0] / BeliefState.tailleCase, l, 'U');
-				}
+			if((posGhost.x + i == this.pacmanRow() && posGhost.y + j == this.pacmanColumn()) || (posGhost.x == this.pacmanRow() && posGhost.y == this.pacmanColumn() && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
+				this.resetAfterDeath();//alors Pacman meurt
 				return 1;
 			}
-			this.listPGhost.get(k).clear();
-			posGhost.x += i;
-			posGhost.y += j;
-			posGhost.dir = dir;
-			this.listPGhost.get(k).add(posGhost);
+			this.setGhostPosition(k, new Position(posGhost.x + i, posGhost.y + j, dir));
 			return 0;
 		}
 	}
@@ -1138,26 +888,313 @@ public class BeliefState implements Comparable{
 	 * @param dir direction followed by the ghost ('U', 'D', 'L', 'R')
 	 */
 	public void moveGhostTo(int i, int j, int k, char dir) {
-		Position posGhost = this.listPGhost.get(k).first();
-		this.listPGhost.get(k).clear();
-		posGhost.x = i;
-		posGhost.y = j;
-		this.compteurPeur.set(k, 0);
-		posGhost.dir = dir;
-		this.listPGhost.get(k).add(/*posGhost.toString(),*/ posGhost);
+		this.checkMutable();
+		this.setCompteurPeur(k, 0);
+		this.setGhostPosition(k, new Position(i, j, dir));
+	}
+
+	/**
+	 * Pacman loses a life: Pacman and the ghosts go back to their initial position
+	 */
+	public void resetAfterDeath() {
+		this.checkMutable();
+		this.setLife(this.life - 1);
+		Position home = this.level.getPacmanHome();
+		this.moveTo(home.x, home.y, 'U');
+		for(int l = 0; l < this.level.getNbrOfGhosts(); l++) {
+			home = this.level.getGhostHome(l);
+			this.moveGhostTo(home.x, home.y, l, 'U');
+		}
+	}
+
+	/**
+	 * draw a concrete state from this state: a copy where each ghost is at one of its possible positions, chosen uniformly
+	 * @param random the random generator used to choose the positions
+	 * @return the concrete state
+	 */
+	BeliefState sample(SplittableRandom random) {
+		BeliefState sample = new BeliefState(this, false);
+		sample.drawGhostPositions(random);
+		return sample;
+	}
+
+	/**
+	 * turn this state into a concrete state, in place: each ghost is put at one of its possible positions, chosen uniformly.
+	 * The change is recorded after mark() so that undo(int) gives back the possible positions.
+	 * @param random the random generator used to choose the positions
+	 */
+	void drawGhostPositions(SplittableRandom random) {
+		this.checkMutable();
+		for(int k = 0; k < this.listPGhost.size(); k++) {
+			PositionSet posGhost = this.listPGhost.get(k);
+			if(posGhost.size() > 1) {
+				int index = random.nextInt(posGhost.size());
+				for(Position posG: posGhost) {
+					if(index-- == 0) {
+						this.setGhostPosition(k, posG);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * test if Pacman can move in a direction
+	 * @param d index of the direction (see directionIndex)
+	 * @return true if the next cell is not a wall
+	 */
+	boolean canMove(int d) {
+		int nextCell = this.neighbour(this.pacmanCell, d);
+		return nextCell >= 0 && !BitBoard.get(this.walls, nextCell);
+	}
+
+	/**
+	 * return the cell reached by Pacman if he moves in a direction
+	 * @param d index of the direction (see directionIndex)
+	 * @return the position of the cell (with the direction of the move), null if the next cell is a wall
+	 */
+	Position nextPacmanPosition(int d) {
+		if(!this.canMove(d))
+			return null;
+		int nextCell = this.neighbour(this.pacmanCell, d);
+		return new Position(nextCell / this.level.getTaille(), nextCell % this.level.getTaille(), DIRECTIONS[d]);
+	}
+
+	/**
+	 * move Pacman in a direction, in place (see move(int, int, char))
+	 * @param d index of the direction (see directionIndex)
+	 * @return true if Pacman is dead after performing the move
+	 */
+	boolean move(int d) {
+		return this.move(DELTA_ROW[d], DELTA_COLUMN[d], DIRECTIONS[d]);
+	}
+
+	/**
+	 * play one turn of a concrete state (one position per ghost) in place: Pacman moves, then each ghost moves as the game does.
+	 * If Pacman moves onto a ghost which is not afraid, or a ghost reaches him, Pacman loses a life and the turn ends.
+	 * @param d index of the direction of Pacman (see directionIndex)
+	 * @param random the random generator of the moves of the ghosts
+	 * @return the ghosts eaten by Pacman during the turn, bit k set for the ghost k
+	 */
+	int step(int d, SplittableRandom random) {
+		if(this.move(d)) {
+			this.resetAfterDeath();
+			return 0;
+		}
+		int eaten = 0;
+		for(int k = 0; k < this.getNbrOfGhost(); k++) {
+			int result = this.moveGhostAtRandom(k, random);
+			if(result == 1)
+				break;
+			if(result == -1)
+				eaten |= 1 << k;
+		}
+		return eaten;
+	}
+
+	/**
+	 * move one of the ghosts of a concrete state (one position per ghost) in place, as the game does:
+	 * the ghost chases Pacman if it sees him and is not afraid, otherwise it follows one of its allowed moves chosen at random
+	 * @param k Id of the ghost
+	 * @param random the random generator used to choose the move
+	 * @return the value returned by moveGhost(int, int, int, char)
+	 */
+	int moveGhostAtRandom(int k, SplittableRandom random) {
+		Position posG = this.listPGhost.get(k).first();
+		int oldRow = this.pacmanOldCell / this.level.getTaille(), oldColumn = this.pacmanOldCell % this.level.getTaille();
+		int d;
+		if(this.compteurPeur[k] == 0 && this.isVisible(posG.x, posG.y, oldRow, oldColumn)) {
+			d = BeliefState.chaseDirection(posG, oldRow, oldColumn);
+		}
+		else {
+			int moves = this.ghostMoves(posG);
+			if(moves == 0)
+				return 0;
+			for(int choice = random.nextInt(Integer.bitCount(moves)); choice > 0; choice--) {
+				moves &= moves - 1;
+			}
+			d = Integer.numberOfTrailingZeros(moves);
+		}
+		return this.moveGhost(DELTA_ROW[d], DELTA_COLUMN[d], k, DIRECTIONS[d]);
+	}
+
+	/**
+	 * start (or continue) to record the in-place modifications of the state (move, moveTo, moveGhost, moveGhostTo, resetAfterDeath,
+	 * step, drawGhostPositions) so that they can be undone
+	 * @return a mark to give to undo(int) to come back to the current state
+	 */
+	public int mark() {
+		this.checkMutable();
+		if(this.undoLog == null)
+			this.undoLog = new ArrayList<Undo>();
+		return this.undoLog.size();
+	}
+
+	/**
+	 * undo all the in-place modifications performed since a given mark
+	 * @param mark value returned by mark()
+	 */
+	public void undo(int mark) {
+		while(this.undoLog.size() > mark) {
+			Undo undo = this.undoLog.remove(this.undoLog.size() - 1);
+			switch(undo.kind) {
+			case Undo.PACMAN:
+				this.setPacman(undo.a, (char)undo.b);
+				this.pacmanOldCell = undo.c;
+				this.pacmanOldDir = (char)undo.d;
+				break;
+			case Undo.GUM:
+				BitBoard.set(this.gums, undo.a);
+				this.zobrist ^= BeliefState.zobristKey(1, undo.a);
+				if(this.gumField != null)
+					this.ownGumField().addGum(undo.a);
+				this.nbrOfGommes++;
+				if(undo.c == 1) {
+					BitBoard.set(this.superGums, undo.a);
+					this.zobrist ^= BeliefState.zobristKey(2, undo.a);
+					this.nbrOfSuperGommes++;
+				}
+				this.score = undo.b;
+				this.palier = undo.d;
+				break;
+			case Undo.FEARS: this.compteurPeur = undo.values; break;
+			case Undo.FEAR: this.compteurPeur[undo.a] = undo.b; break;
+			case Undo.GHOST:
+				this.zobrist ^= this.ghostHashes[undo.a] ^ undo.hash;
+				this.ghostHashes[undo.a] = undo.hash;
+				this.listPGhost.set(undo.a, undo.set);
+				break;
+			case Undo.SCORE: this.score = undo.a; break;
+			case Undo.LIFE: this.life = undo.a; break;
+			}
+		}
+	}
+
+	/**
+	 * forbid the in-place modifications of the state, called when the state is stored in a Result
+	 * (the copies of the state can still be modified)
+	 */
+	void freeze() {
+		this.frozen = true;
+	}
+
+	/**
+	 * check that the state can be modified in place
+	 * @throws IllegalStateException if the state belongs to a Result
+	 */
+	private void checkMutable() {
+		if(this.frozen)
+			throw new IllegalStateException("a state of a Result can't be modified, modify a copy of it");
+	}
+
+	private void recordPacman() {
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(Undo.PACMAN, this.pacmanCell, this.pacmanDir, this.pacmanOldCell, this.pacmanOldDir));
+	}
+
+	private void setCompteurPeur(int k, int value) {
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(Undo.FEAR, k, this.compteurPeur[k], null));
+		this.compteurPeur[k] = value;
+	}
+
+	private void setScore(int score) {
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(Undo.SCORE, this.score, 0, null));
+		this.score = score;
+	}
+
+	private void setLife(int life) {
+		if(this.undoLog != null)
+			this.undoLog.add(new Undo(Undo.LIFE, this.life, 0, null));
+		this.life = life;
+	}
+
+	/**
+	 * states found while moving the possible positions of the ghosts in computeExtendsBeliefState
+	 */
+	private static final class Expansion {
+		/** cell of Pacman before its move */
+		final int oldCell;
+		/** new states where the position of the ghost being moved is known */
+		final ArrayList<BeliefState> split;
+		/** positions of the ghost already used to create a new state from the state being expanded */
+		final PositionSet splitPositions;
+		/** first state found where Pacman is dead, null if there is none */
+		BeliefState dead;
+
+		Expansion(int oldCell, LevelContext level) {
+			this.oldCell = oldCell;
+			this.split = new ArrayList<BeliefState>();
+			this.splitPositions = new PositionSet(level);
+		}
+
+		/**
+		 * record that Pacman can be killed from a given state
+		 * @param state the state where a ghost reaches Pacman
+		 */
+		void kill(BeliefState state) {
+			if(this.dead == null)
+				this.dead = new BeliefState(state, true);
+		}
+	}
+
+	/**
+	 * one in-place modification of a state, recorded to be undone
+	 */
+	private static final class Undo {
+		static final int PACMAN = 0, GUM = 1, FEARS = 2, FEAR = 3, GHOST = 4, SCORE = 5, LIFE = 6;
+		final int kind, a, b, c, d;
+		final int[] values;
+		final long hash;
+		final PositionSet set;
+
+		Undo(int kind, int a, int b, int c, int d) {
+			this.kind = kind;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.d = d;
+			this.values = null;
+			this.hash = 0;
+			this.set = null;
+		}
+
+		Undo(int kind, int a, int b, int[] values) {
+			this.kind = kind;
+			this.a = a;
+			this.b = b;
+			this.c = 0;
+			this.d = 0;
+			this.values = values;
+			this.hash = 0;
+			this.set = null;
+		}
+
+		Undo(int k, long hash, PositionSet set) {
+			this.kind = GHOST;
+			this.a = k;
+			this.b = 0;
+			this.c = 0;
+			this.d = 0;
+			this.values = null;
+			this.hash = hash;
+			this.set = set;
+		}
 	}
 
 	public String toString() {
 		String s = new String();
-		for(int i = 0; i < this.map.length; i++) {
-			for(int j = 0; j < this.map[0].length; j++) {
-				s += this.map[i][j];
+		for(int i = 0; i < this.level.getTaille(); i++) {
+			for(int j = 0; j < this.level.getTaille(); j++) {
+				s += this.getMap(i, j);
 			}
 			s += '\n';
 		}
-		s += "Pacman (" + this.pacmanPos.x + ", " + this.pacmanPos.y + ", " + this.pacmanPos.dir + ") "+ this.score +"\n";
+		s += "Pacman (" + this.pacmanRow() + ", " + this.pacmanColumn() + ", " + this.pacmanDir + ") "+ this.score +"\n";
 		for(int i = 0; i < this.listPGhost.size(); i++) {
-			s += "Ghost " + i + " (" + this.listPGhost.get(i).size() + ") [" + this.compteurPeur.get(i) + "]";
+			s += "Ghost " + i + " (" + this.listPGhost.get(i).size() + ") [" + this.compteurPeur[i] + "]";
 			Iterator<Position> itPos = this.listPGhost.get(i).iterator();
 			while(itPos.hasNext()) {
 				Position posG = itPos.next();
@@ -1224,7 +1261,23 @@ public class BeliefState implements Comparable{
 	 * @return the position of Pacman
 	 */
 	public Position getPacmanPos() {
-		return this.pacmanPos;
+		return new Position(this.pacmanRow(), this.pacmanColumn(), this.pacmanDir);
+	}
+
+	/**
+	 * return the row of Pacman
+	 * @return the row of Pacman
+	 */
+	private int pacmanRow() {
+		return this.pacmanCell / this.level.getTaille();
+	}
+
+	/**
+	 * return the column of Pacman
+	 * @return the column of Pacman
+	 */
+	private int pacmanColumn() {
+		return this.pacmanCell % this.level.getTaille();
 	}
 	
 	/**
@@ -1235,6 +1288,14 @@ public class BeliefState implements Comparable{
 		return this.life;
 	}
 	
+	/**
+	 * return the score at which Pacman wins its next life
+	 * @return the next palier
+	 */
+	public int getPalier() {
+		return this.palier;
+	}
+	
 	/**
 	 * return the number of remaining gums in the map
 	 * @return the number of remaining gums in the map
@@ -1256,101 +1317,152 @@ public class BeliefState implements Comparable{
 	 * @return number of ghosts
 	 */
 	public int getNbrOfGhost() {
-		return this.compteurPeur.size();
+		return this.compteurPeur.length;
 	}
 	
 	public int getCompteurPeur(int i) {
-		return this.compteurPeur.get(i);
+		return this.compteurPeur[i];
 	}
 	
+	/**
+	 * return the content of one square ('#', '.', '*', 'O', 'P', 'F' or 'B')
+	 * @param i row of the square
+	 * @param j column of the square
+	 * @return the content of the square
+	 */
 	public char getMap(int i, int j) {
-		return this.map[i][j];
+		int cell = i * this.level.getTaille() + j;
+		if(BitBoard.get(this.walls, cell))
+			return '#';
+		if(cell == this.pacmanCell)
+			return BitBoard.get(this.ghostHomes, cell) ? 'B' : 'P';
+		if(BitBoard.get(this.gums, cell))
+			return BitBoard.get(this.superGums, cell) ? '*' : '.';
+		return BitBoard.get(this.ghostHomes, cell) ? 'F' : 'O';
 	}
 	
 	public char[][] getMap(){
-		return this.map;
+		char[][] map = new char[this.level.getTaille()][this.level.getTaille()];
+		for(int i = 0; i < this.level.getTaille(); i++) {
+			for(int j = 0; j < this.level.getTaille(); j++) {
+				map[i][j] = this.getMap(i, j);
+			}
+		}
+		return map;
 	}
 	
 	public Position getPacmanPosition() {
-		return this.pacmanPos;
+		return this.getPacmanPos();
 	}
 	
 	public Position getPacmanOldPosition() {
-		return this.pacmanOldPos;
+		return new Position(this.pacmanOldCell / this.level.getTaille(), this.pacmanOldCell % this.level.getTaille(), this.pacmanOldDir);
 	}
 	
-	public TreeSet<Position> getGhostPositions(int i){
+	public PositionSet getGhostPositions(int i){
 		return this.listPGhost.get(i);
 	}
-	public static boolean isVisible(int row1, int column1, int row2, int column2) {
-		//System.out.println("isVisible " + row1 + "," + column1 + ";" + row2 + "," + column2);
-		if(row1 == row2) {
-			//System.out.println("row " + row1 + " columns " + column1 + "," + column2);
-			return BeliefState.visible.contains(row1+","+Math.min(column1,column2)+";"+row2+","+Math.max(column1, column2));
-		}
-		if(column1 == column2) {
-			//System.out.println("column " + column1 + " rows " + row1 + "," + row2);
-			return BeliefState.visible.contains(Math.min(row1, row2)+","+column1+";"+Math.max(row1, row2)+","+column2);
-		}
-		return false;
+	public boolean isVisible(int row1, int column1, int row2, int column2) {
+		return this.level.isVisible(row1, column1, row2, column2);
 	}
 	
+	/**
+	 * return the distance in the maze between two cells
+	 * @param row1 row of the first cell
+	 * @param column1 column of the first cell
+	 * @param row2 row of the second cell
+	 * @param column2 column of the second cell
+	 * @return the number of moves of the shortest path, Integer.MAX_VALUE if there is no path
+	 */
+	public int distance(int row1, int column1, int row2, int column2) {
+		return this.level.getDistances().distance(row1, column1, row2, column2);
+	}
+
+	/**
+	 * return the level of the state
+	 * @return the level, shared by all the states of the level
+	 */
+	public LevelContext getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * return the next cell on a shortest path between two cells
+	 * @param from the first cell
+	 * @param to the last cell
+	 * @return the position of the next cell (with the direction of the move), null if from == to or if there is no path
+	 */
+	public Position nextHop(Position from, Position to) {
+		int next = this.level.getDistances().nextHop(from.x * this.level.getTaille() + from.y, to.x * this.level.getTaille() + to.y);
+		if(next < 0)
+			return null;
+		int row = next / this.level.getTaille(), column = next % this.level.getTaille();
+		char dir = row < from.x ? 'U' : row > from.x ? 'D' : column < from.y ? 'L' : 'R';
+		return new Position(row, column, dir);
+	}
+
+	/**
+	 * return the distance in the maze between Pacman and the closest gum
+	 * @return the number of moves to the closest gum, Integer.MAX_VALUE if no gum can be reached
+	 */
 	public int distanceMinToGum() {
-		LinkedList<int[]> queue = new LinkedList<int[]>();
-		HashSet<String> visited = new HashSet<String>();
-		int[] posP = new int[3];
-		posP[0] = this.pacmanPos.x;
-		posP[1] = this.pacmanPos.y;
-		posP[2] = 0;
-		queue.add(posP);
-		while(!queue.isEmpty()) {
-			int[] next = queue.pollFirst();
-			visited.add(next[0] + "," + next[1]);
-			if(next[0] > 0) {
-				if(!visited.contains((next[0] - 1) + "," + next[1])) {
-					char content = this.map[next[0] - 1][next[1]];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0] - 1, next[1], next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[0] < BeliefState.taille - 1) {
-				if(!visited.contains((next[0] + 1) + "," + next[1])) {
-					char content = this.map[next[0] + 1][next[1]];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0] + 1, next[1], next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[1] > 0) {
-				if(!visited.contains(next[0] + "," + (next[1] - 1))) {
-					char content = this.map[next[0]][next[1] - 1];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0], next[1] - 1, next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[1] < BeliefState.taille - 1) {
-				if(!visited.contains(next[0] + "," + (next[1] + 1))) {
-					char content = this.map[next[0]][next[1] + 1];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0], next[1] + 1, next[2] + 1}; queue.add(neighbor);
-					}
-				}
+		int distance = this.gumField().get(this.pacmanCell);
+		if(distance != 0)
+			return distance;
+		int min = Distances.INFINI;//une gomme sous Pacman ne compte pas
+		for(int cell = BitBoard.nextSetBit(this.gums, 0); cell >= 0; cell = BitBoard.nextSetBit(this.gums, cell + 1)) {
+			if(cell != this.pacmanCell) {
+				min = Math.min(min, this.level.getDistances().distance(this.pacmanCell, cell));
 			}
 		}
-		return Integer.MAX_VALUE;
+		return min;
+	}
+
+	/**
+	 * return the closest gum, reached by following the distance field of the gums from Pacman
+	 * @return the position of the gum (the gum under Pacman if any), null if no gum can be reached
+	 */
+	public Position getClosestGum() {
+		GumField field = this.gumField();
+		int cell = this.pacmanCell;
+		if(field.get(cell) == GumField.INFINITE)
+			return null;
+		for(int next = field.descend(cell); next >= 0; next = field.descend(cell)) {
+			cell = next;
+		}
+		return new Position(cell / this.level.getTaille(), cell % this.level.getTaille(), 'U');
+	}
+
+	/**
+	 * return the direction of the first move toward the closest gum
+	 * @return the direction ('U', 'D', 'L' or 'R'), 0 if Pacman is on a gum or if no gum can be reached
+	 */
+	public char getDirectionToGum() {
+		int next = this.gumField().descend(this.pacmanCell);
+		for(int d = 0; d < 4 && next >= 0; d++) {
+			if(this.neighbour(this.pacmanCell, d) == next)
+				return DIRECTIONS[d];
+		}
+		return 0;
+	}
+
+	/**
+	 * return the distance field of the gums, built if needed
+	 * @return the distance field
+	 */
+	private GumField gumField() {
+		if(this.gumField == null)
+			this.gumField = new GumField(this.gums, this.walls, this.level.getNeighbours());
+		return this.gumField;
+	}
+
+	/**
+	 * return the distance field of the gums after copying it if it is shared with another state
+	 * @return the distance field, that can be updated
+	 */
+	private GumField ownGumField() {
+		if(this.gumField.isShared())
+			this.gumField = new GumField(this.gumField);
+		return this.gumField;
 	}
 }
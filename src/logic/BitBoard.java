@@ -0,0 +1,95 @@
+package logic;
+
+/**
+ * static helpers used to handle a set of cells of the grid packed in a long[] (one bit per cell).
+ * A cell (i, j) is represented by the index i * taille + j.
+ */
+final class BitBoard {
+
+	private BitBoard() {
+	}
+
+	/**
+	 * return the number of words needed to store a given number of cells
+	 * @param nbrOfCells number of cells of the grid
+	 * @return the number of long needed
+	 */
+	static int words(int nbrOfCells) {
+		return (nbrOfCells + 63) >>> 6;
+	}
+
+	/**
+	 * test if a cell belongs to the set
+	 * @param board the set of cells
+	 * @param cell index of the cell
+	 * @return true if the cell belongs to the set
+	 */
+	static boolean get(long[] board, int cell) {
+		return (board[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * add a cell to the set
+	 * @param board the set of cells
+	 * @param cell index of the cell
+	 */
+	static void set(long[] board, int cell) {
+		board[cell >>> 6] |= 1L << cell;
+	}
+
+	/**
+	 * remove a cell from the set
+	 * @param board the set of cells
+	 * @param cell index of the cell
+	 */
+	static void clear(long[] board, int cell) {
+		board[cell >>> 6] &= ~(1L << cell);
+	}
+
+	/**
+	 * return the number of cells in the set
+	 * @param board the set of cells
+	 * @return the number of cells in the set
+	 */
+	static int cardinality(long[] board) {
+		int count = 0;
+		for(long word: board) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * return the first cell of the set with an index greater or equal to a given index
+	 * @param board the set of cells
+	 * @param from index from which the search starts
+	 * @return the index of the cell, -1 if there is no such cell
+	 */
+	static int nextSetBit(long[] board, int from) {
+		int index = from >>> 6;
+		if(index >= board.length)
+			return -1;
+		long word = board[index] & (-1L << from);
+		while(true) {
+			if(word != 0)
+				return (index << 6) + Long.numberOfTrailingZeros(word);
+			if(++index == board.length)
+				return -1;
+			word = board[index];
+		}
+	}
+
+	/**
+	 * compare two sets of cells word by word
+	 * @param board1 first set
+	 * @param board2 second set
+	 * @return 0 if the two sets are the same
+	 */
+	static int compare(long[] board1, long[] board2) {
+		for(int i = 0; i < board1.length; i++) {
+			if(board1[i] != board2[i])
+				return Long.compare(board1[i], board2[i]);
+		}
+		return 0;
+	}
+}
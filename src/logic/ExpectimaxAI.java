@@ -0,0 +1,235 @@
+package logic;
+
+import java.util.ArrayList;
+
+/**
+ * class implementing a search-based choice of the next move of Pacman: an expectimax over the plans of the belief states.
+ * The root is a chance node over the visible belief states: the value of an action is the mean of its values from each of them.
+ * Below, the actions of Pacman are max nodes (Plans), the belief states an action may lead to are chance nodes (Result)
+ * weighted uniformly. The search is deepened one move at a time until a time budget is spent, the action played is the
+ * best action of the last depth fully searched. The deadline is checked between the children of each node and inside the
+ * expansions (BeliefState.extendsBeliefState(String, long)); a depth is not started if it would end after the deadline
+ * (it takes at least as long as the previous one).
+ */
+public class ExpectimaxAI implements PacmanPolicy {
+	/** default time budget of a move (50 ms) */
+	public static final long DEFAULT_BUDGET = 50000000L;
+	/** value of a life of Pacman in the evaluation */
+	private static final double LIFE_VALUE = 1000;
+	/** bonus of the states where all the gums are eaten */
+	private static final double WIN_VALUE = 5000;
+	/** maximal depth of the iterative deepening */
+	private static final int MAX_DEPTH = 64;
+
+	/** time budget of a move, in nanoseconds */
+	private final long budget;
+	/** date (System.nanoTime()) at which the current search must stop */
+	private long deadline;
+	/** true when the current depth has been interrupted by the deadline */
+	private boolean timeOut;
+	/** true when the current depth has reached a state which was not terminal at its maximal depth */
+	private boolean cutOff;
+	/** depth of the last search fully completed */
+	private int lastDepth;
+	/** number of nodes expanded during the last move */
+	private long nbrOfNodes;
+
+	/**
+	 * construct a planner with the default time budget
+	 */
+	public ExpectimaxAI() {
+		this(DEFAULT_BUDGET);
+	}
+
+	/**
+	 * construct a planner
+	 * @param budget the time budget of a move, in nanoseconds
+	 */
+	public ExpectimaxAI(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * compute the next action of Pacman from all the visible belief states, within the given time
+	 * @param beliefStates the current belief states of the agent (Map.getVisibleBeliefState()), Pacman is at the same position in all of them
+	 * @param budget the time budget of the move, in nanoseconds
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String decide(ArrayList<BeliefState> beliefStates, long budget) {
+		return this.findNextMove(beliefStates, budget);
+	}
+
+	/**
+	 * compute the next action of Pacman within the time budget of the planner
+	 * @param beliefState the current belief state of the agent
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String findNextMove(BeliefState beliefState) {
+		ArrayList<BeliefState> beliefStates = new ArrayList<BeliefState>();
+		beliefStates.add(beliefState);
+		return this.findNextMove(beliefStates, this.budget);
+	}
+
+	/**
+	 * compute the next action of Pacman: the depth of the search is increased until the time budget is spent
+	 * or until the whole tree has been searched
+	 * @param beliefStates the current belief states of the agent, Pacman is at the same position in all of them
+	 * @param budget the time budget of the move, in nanoseconds
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String findNextMove(ArrayList<BeliefState> beliefStates, long budget) {
+		BeliefState first = beliefStates.get(0);
+		if(first.getNbrOfGommes() == 0)
+			return null;
+		long start = System.nanoTime();
+		this.deadline = start + budget;
+		this.timeOut = false;
+		this.lastDepth = 0;
+		this.nbrOfNodes = 0;
+		ArrayList<ArrayList<String>> actions = first.groupActions();
+		if(actions.size() == 0)
+			return "STOP";
+		// action jouee si aucune profondeur n'a pu etre terminee dans le temps imparti
+		String bestAction = actions.get(0).get(0);
+		long iterationTime = 0;
+		for(int depth = 1; depth <= MAX_DEPTH; depth++) {
+			long iterationStart = System.nanoTime();
+			if(iterationStart + iterationTime > this.deadline)// la profondeur suivante dure au moins autant que la precedente
+				break;
+			this.timeOut = false;
+			this.cutOff = false;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			String action = null;
+			for(int i = 0; i < actions.size() && !this.timeOut; i++) {
+				double value = this.rootValue(beliefStates, actions.get(i).get(0), depth);
+				if(value > bestValue) {
+					bestValue = value;
+					action = actions.get(i).get(0);
+				}
+			}
+			if(this.timeOut)
+				break;
+			bestAction = action;
+			this.lastDepth = depth;
+			iterationTime = System.nanoTime() - iterationStart;
+			if(!this.cutOff)// tout l'arbre a ete parcouru
+				break;
+		}
+		return bestAction;
+	}
+
+	/**
+	 * value of an action at the root: the mean of its values from each of the visible belief states
+	 * @param beliefStates the visible belief states
+	 * @param action the action of Pacman
+	 * @param depth the number of moves to search, this action included
+	 * @return the value of the action
+	 */
+	private double rootValue(ArrayList<BeliefState> beliefStates, String action, int depth) {
+		double sum = 0;
+		for(BeliefState beliefState: beliefStates) {
+			Result result = this.expand(beliefState, action);
+			if(result == null)
+				return 0;
+			sum += this.chanceValue(result, depth - 1);
+		}
+		return sum / beliefStates.size();
+	}
+
+	/**
+	 * value of a max node: the best of the actions of Pacman
+	 * @param beliefState the belief state of the node
+	 * @param depth the number of moves still to search
+	 * @return the value of the node
+	 */
+	private double maxValue(BeliefState beliefState, int depth) {
+		if(beliefState.getLife() <= 0 || beliefState.getNbrOfGommes() == 0)
+			return ExpectimaxAI.evaluate(beliefState);
+		if(depth == 0) {
+			this.cutOff = true;
+			return ExpectimaxAI.evaluate(beliefState);
+		}
+		ArrayList<ArrayList<String>> actions = beliefState.groupActions();
+		if(actions.size() == 0)
+			return ExpectimaxAI.evaluate(beliefState);
+		this.nbrOfNodes++;
+		double best = Double.NEGATIVE_INFINITY;
+		for(ArrayList<String> action: actions) {
+			Result result = this.expand(beliefState, action.get(0));
+			if(result == null)
+				return 0;
+			best = Math.max(best, this.chanceValue(result, depth - 1));
+		}
+		return best;
+	}
+
+	/**
+	 * value of a chance node: the mean of the values of the belief states an action may lead to
+	 * @param result the belief states reached by the action
+	 * @param depth the number of moves still to search
+	 * @return the value of the node
+	 */
+	private double chanceValue(Result result, int depth) {
+		double sum = 0;
+		for(int i = 0; i < result.size(); i++) {
+			if(this.isOutOfTime())// la profondeur en cours est abandonnee
+				return 0;
+			sum += this.maxValue(result.getBeliefState(i), depth);
+		}
+		return result.size() == 0 ? 0 : sum / result.size();
+	}
+
+	/**
+	 * compute the states resulting from an action, unless the deadline passes before or during the computation
+	 * @param beliefState the state from which Pacman performs the action
+	 * @param action the action of Pacman
+	 * @return the states resulting from the action, null if the current depth must be given up
+	 */
+	private Result expand(BeliefState beliefState, String action) {
+		Result result = this.isOutOfTime() ? null : beliefState.extendsBeliefState(action, this.deadline);
+		if(result == null)
+			this.timeOut = true;
+		return result;
+	}
+
+	/**
+	 * test if the deadline of the search has passed, and mark the current depth as interrupted if so
+	 * @return true if the current depth must be given up
+	 */
+	private boolean isOutOfTime() {
+		if(!this.timeOut && System.nanoTime() > this.deadline)
+			this.timeOut = true;
+		return this.timeOut;
+	}
+
+	/**
+	 * evaluation of a belief state: the score, the lives left, the distance to the closest gum and a bonus when all the gums are eaten
+	 * @param beliefState the belief state to evaluate
+	 * @return the value of the belief state
+	 */
+	private static double evaluate(BeliefState beliefState) {
+		double value = beliefState.getScore() + LIFE_VALUE * beliefState.getLife();
+		if(beliefState.getNbrOfGommes() == 0)
+			return value + WIN_VALUE;
+		int distance = beliefState.distanceMinToGum();
+		if(distance != Integer.MAX_VALUE)
+			value -= distance;
+		return value;
+	}
+
+	/**
+	 * return the depth of the last search fully completed
+	 * @return the depth (in moves of Pacman)
+	 */
+	public int getLastDepth() {
+		return this.lastDepth;
+	}
+
+	/**
+	 * return the number of nodes expanded during the last move
+	 * @return the number of nodes
+	 */
+	public long getNbrOfNodes() {
+		return this.nbrOfNodes;
+	}
+}
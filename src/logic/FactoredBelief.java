@@ -0,0 +1,189 @@
+package logic;
+
+import java.util.ArrayList;
+
+/**
+ * factored version of the visible belief states: a single state for the part known by Pacman (its position, the gums,
+ * the score, the lives and the fear of the ghosts) and an independent probability distribution over the positions of each ghost.
+ * Each distribution is updated on its own (the ghost rule of computeExtendsBeliefState applied to every position), so the
+ * cost of a move is linear in the number of ghosts instead of growing with the combinations of their positions;
+ * the correlations between the ghosts are lost.
+ * The state given to the policies has, for each ghost, the positions of non-zero probability.
+ */
+public class FactoredBelief {
+	/** state returned by the last update (the ghost positions are the supports of the distributions) */
+	private BeliefState state;
+	/** the state after the last move of Pacman, before the move of the ghosts */
+	private BeliefState moved;
+	/** list of states returned by the last update */
+	private ArrayList<BeliefState> beliefStates;
+	/** positions of non-zero probability of each ghost, and their probabilities (index PositionSet.index: one per open cell and direction) */
+	private PositionSet[] supports;
+	private double[][] probabilities;
+	/** distribution being computed, swapped with the distribution of the ghost once done */
+	private PositionSet nextSupport;
+	private double[] nextProbabilities;
+	private final Position[] successors = new Position[4];
+
+	/**
+	 * compute the belief after a move of Pacman: Pacman moves, then each ghost moves from each of its possible positions
+	 * (its probability is shared equally among its successors, the moves where the ghost meets Pacman are dropped: observe tells if they happened)
+	 * @param beliefStates the current belief states (a list not returned by this object, like the belief state of a new level, is first factored with uniform distributions)
+	 * @param toward the move of Pacman (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 * @return a list holding the state after the move, to be completed by observe
+	 */
+	public ArrayList<BeliefState> predict(ArrayList<BeliefState> beliefStates, String toward) {
+		this.adopt(beliefStates);
+		this.moved = this.state.movePacman(BeliefState.directionIndex(toward.charAt(0)));
+		for(int k = 0; k < this.supports.length; k++) {
+			int compteurPeur = this.moved.getCompteurPeur(k);
+			for(Position posG: this.supports[k]) {
+				int index = this.supports[k].index(posG);
+				int n = this.moved.ghostSuccessors(posG, compteurPeur, this.successors);
+				for(int i = 0; i < n; i++) {
+					if(this.successors[i] != null) {//sinon le ghost tue Pacman ou est mange : la position est abandonnee
+						int next = this.nextSupport.index(this.successors[i]);
+						this.nextSupport.add(this.successors[i]);
+						this.nextProbabilities[next] += this.probabilities[k][index] / n;
+					}
+				}
+				this.probabilities[k][index] = 0;
+			}
+			this.swap(k);
+		}
+		this.state = this.toBeliefState(this.moved);
+		this.beliefStates = new ArrayList<BeliefState>();
+		this.beliefStates.add(this.state);
+		return this.beliefStates;
+	}
+
+	/**
+	 * update the belief with what Pacman sees after the move of the ghosts: the known part is taken from the game,
+	 * a visible ghost is at its observed position, a ghost which is not visible is at none of the visible positions.
+	 * The position of a ghost is also known when it comes back home (Pacman died or ate it),
+	 * and when no position of its distribution is left.
+	 * @param beliefStates the list returned by predict, modified in place
+	 * @param observed the state of the game
+	 */
+	public void observe(ArrayList<BeliefState> beliefStates, BeliefState observed) {
+		this.adopt(beliefStates);
+		boolean dead = observed.getLife() < this.state.getLife();
+		Position pacman = observed.getPacmanPosition();
+		for(int k = 0; k < this.supports.length; k++) {
+			Position posG = observed.getPGhost(k);
+			boolean eaten = this.moved != null && this.moved.getCompteurPeur(k) > 2 && observed.getCompteurPeur(k) == 0;
+			if(dead || eaten || observed.isVisible(posG.x, posG.y, pacman.x, pacman.y)) {
+				this.collapse(k, posG);
+				continue;
+			}
+			double sum = 0;
+			for(Position pos: this.supports[k]) {
+				int index = this.supports[k].index(pos);
+				if(observed.isVisible(pos.x, pos.y, pacman.x, pacman.y))//Pacman verrait le ghost
+					this.probabilities[k][index] = 0;
+				else {
+					this.nextSupport.add(pos);
+					this.nextProbabilities[index] = this.probabilities[k][index];
+					sum += this.probabilities[k][index];
+					this.probabilities[k][index] = 0;
+				}
+			}
+			this.swap(k);
+			if(sum == 0)
+				this.collapse(k, posG);
+			else {
+				for(Position pos: this.supports[k]) {
+					this.probabilities[k][this.supports[k].index(pos)] /= sum;
+				}
+			}
+		}
+		this.moved = null;
+		this.state = this.toBeliefState(observed);
+		beliefStates.clear();
+		beliefStates.add(this.state);
+		this.beliefStates = beliefStates;
+	}
+
+	/**
+	 * return the probability that a ghost is at a given position
+	 * @param k Id of the ghost
+	 * @param pos the position (with the direction of the ghost)
+	 * @return the probability, 0 if the belief has not been initialized
+	 */
+	public double getProbability(int k, Position pos) {
+		if(this.supports == null || !this.supports[k].contains(pos))
+			return 0;
+		return this.probabilities[k][this.supports[k].index(pos)];
+	}
+
+	/**
+	 * factor a list of states which has not been returned by this object: the known part is taken from the first state,
+	 * each ghost is uniformly distributed over its positions in all the states
+	 * @param beliefStates the states
+	 */
+	private void adopt(ArrayList<BeliefState> beliefStates) {
+		if(this.beliefStates == beliefStates && beliefStates.size() == 1 && beliefStates.get(0) == this.state)
+			return;
+		BeliefState first = beliefStates.get(0);
+		LevelContext level = first.getLevel();
+		int positions = level.getNbrOfOpenCells() * 4, nbrOfGhosts = first.getNbrOfGhost();
+		this.supports = new PositionSet[nbrOfGhosts];
+		this.probabilities = new double[nbrOfGhosts][positions];
+		this.nextSupport = new PositionSet(level);
+		this.nextProbabilities = new double[positions];
+		for(int k = 0; k < nbrOfGhosts; k++) {
+			this.supports[k] = new PositionSet(level);
+			for(BeliefState beliefState: beliefStates) {
+				this.supports[k].addAll(beliefState.getGhostPositions(k));
+			}
+			int size = this.supports[k].size();
+			for(Position pos: this.supports[k]) {
+				this.probabilities[k][this.supports[k].index(pos)] = 1.0 / size;
+			}
+		}
+		this.moved = null;
+		this.state = first;
+		this.beliefStates = beliefStates;
+	}
+
+	/**
+	 * put all the probability of a ghost on one position
+	 * @param k Id of the ghost
+	 * @param pos the position of the ghost
+	 */
+	private void collapse(int k, Position pos) {
+		for(Position old: this.supports[k]) {
+			this.probabilities[k][this.supports[k].index(old)] = 0;
+		}
+		this.supports[k].clear();
+		this.supports[k].add(pos);
+		this.probabilities[k][this.supports[k].index(pos)] = 1;
+	}
+
+	/**
+	 * replace the distribution of a ghost by the one being computed; the old one (set to zero by the caller) is reused for the next computation
+	 * @param k Id of the ghost
+	 */
+	private void swap(int k) {
+		PositionSet support = this.supports[k];
+		double[] probabilities = this.probabilities[k];
+		this.supports[k] = this.nextSupport;
+		this.probabilities[k] = this.nextProbabilities;
+		support.clear();
+		this.nextSupport = support;
+		this.nextProbabilities = probabilities;
+	}
+
+	/**
+	 * create the state given to the policies: a copy of the known part where each ghost may be at any position of its distribution
+	 * @param known the state holding the known part
+	 * @return the new state
+	 */
+	private BeliefState toBeliefState(BeliefState known) {
+		BeliefState beliefState = new BeliefState(known, false);
+		for(int k = 0; k < this.supports.length; k++) {
+			beliefState.setGhostPositions(k, new PositionSet(this.supports[k]));
+		}
+		return beliefState;
+	}
+}
@@ -0,0 +1,208 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * statistics of one or several games, per level (map): the levels played, cleared and the lives lost,
+ * the moves, the score won, the time taken by the policy to choose each move, the number of visible belief states
+ * and the hits and misses of the transposition table of the level.
+ * The statistics of several games are gathered with merge.
+ */
+public class GameStatistics {
+	/** number of games, of games ended with lives left, their total score and number of moves */
+	private int games, survivals;
+	private long score, actions;
+	/** per level (index = number of the level): times played, times cleared, lives lost, moves, score won */
+	private int[] plays, cleared, deaths;
+	private long[] ticks, levelScore;
+	/** per level: sum and maximum of the number of visible belief states before each move */
+	private long[] beliefStates;
+	private int[] maxBeliefStates;
+	/** per level: hits and misses of the transposition table */
+	private long[] tableHits, tableMisses;
+	/** per level: time taken by the policy to choose each move (in nanoseconds), the first latencyCount[level] are used */
+	private long[][] latencies;
+	private int[] latencyCount;
+
+	/**
+	 * construct empty statistics
+	 */
+	public GameStatistics() {
+		int size = PacManLauncher.NBR_LVL + 1;
+		this.plays = new int[size];
+		this.cleared = new int[size];
+		this.deaths = new int[size];
+		this.ticks = new long[size];
+		this.levelScore = new long[size];
+		this.beliefStates = new long[size];
+		this.maxBeliefStates = new int[size];
+		this.tableHits = new long[size];
+		this.tableMisses = new long[size];
+		this.latencies = new long[size][16];
+		this.latencyCount = new int[size];
+	}
+
+	/**
+	 * record a move
+	 * @param level the level being played
+	 * @param latency the time taken by the policy to choose the move, in nanoseconds
+	 * @param nbrOfBeliefStates the number of visible belief states given to the policy
+	 */
+	public void recordMove(int level, long latency, int nbrOfBeliefStates) {
+		this.addLatency(level, latency);
+		this.beliefStates[level] += nbrOfBeliefStates;
+		this.maxBeliefStates[level] = Math.max(this.maxBeliefStates[level], nbrOfBeliefStates);
+	}
+
+	/**
+	 * record the end of a level (cleared, lost or stopped by the maximal number of moves)
+	 * @param level the level
+	 * @param ticks the number of moves played in the level
+	 * @param score the score won in the level
+	 * @param cleared true if all the gums have been eaten
+	 * @param deaths the number of lives lost in the level
+	 */
+	public void recordLevel(int level, int ticks, int score, boolean cleared, int deaths) {
+		this.plays[level]++;
+		if(cleared)
+			this.cleared[level]++;
+		this.deaths[level] += deaths;
+		this.ticks[level] += ticks;
+		this.levelScore[level] += score;
+	}
+
+	/**
+	 * record the use of the transposition table of a level, at the end of the level
+	 * @param level the level
+	 * @param hits the number of results found in the table
+	 * @param misses the number of results not found in the table
+	 */
+	public void recordTranspositions(int level, long hits, long misses) {
+		this.tableHits[level] += hits;
+		this.tableMisses[level] += misses;
+	}
+
+	/**
+	 * record the end of a game
+	 * @param score the final score
+	 * @param actions the number of moves of the game
+	 * @param survived true if Pacman still has lives (the game was stopped by the maximal number of moves)
+	 */
+	public void recordGame(int score, long actions, boolean survived) {
+		this.games++;
+		if(survived)
+			this.survivals++;
+		this.score += score;
+		this.actions += actions;
+	}
+
+	/**
+	 * add the statistics of other games to these ones
+	 * @param other the statistics to add
+	 */
+	public void merge(GameStatistics other) {
+		this.games += other.games;
+		this.survivals += other.survivals;
+		this.score += other.score;
+		this.actions += other.actions;
+		for(int level = 0; level < this.plays.length; level++) {
+			this.plays[level] += other.plays[level];
+			this.cleared[level] += other.cleared[level];
+			this.deaths[level] += other.deaths[level];
+			this.ticks[level] += other.ticks[level];
+			this.levelScore[level] += other.levelScore[level];
+			this.beliefStates[level] += other.beliefStates[level];
+			this.maxBeliefStates[level] = Math.max(this.maxBeliefStates[level], other.maxBeliefStates[level]);
+			this.tableHits[level] += other.tableHits[level];
+			this.tableMisses[level] += other.tableMisses[level];
+			for(int i = 0; i < other.latencyCount[level]; i++) {
+				this.addLatency(level, other.latencies[level][i]);
+			}
+		}
+	}
+
+	public int getNbrOfGames() {
+		return this.games;
+	}
+
+	public long getNbrOfActions() {
+		return this.actions;
+	}
+
+	/**
+	 * return the hits of the transposition tables
+	 * @param level the level, 0 for all the levels
+	 * @return the number of results found in the tables
+	 */
+	public long getTableHits(int level) {
+		return level > 0 ? this.tableHits[level] : Arrays.stream(this.tableHits).sum();
+	}
+
+	/**
+	 * return the misses of the transposition tables
+	 * @param level the level, 0 for all the levels
+	 * @return the number of results not found in the tables
+	 */
+	public long getTableMisses(int level) {
+		return level > 0 ? this.tableMisses[level] : Arrays.stream(this.tableMisses).sum();
+	}
+
+	/**
+	 * return a percentile of the time taken by the policy to choose a move
+	 * @param level the level, 0 for all the levels
+	 * @param percent the percentile (50 for the median)
+	 * @return the time (in nanoseconds) of the percentile, 0 if no move has been recorded
+	 */
+	public long getLatencyPercentile(int level, double percent) {
+		long[] sorted;
+		if(level > 0) {
+			sorted = Arrays.copyOf(this.latencies[level], this.latencyCount[level]);
+		}
+		else {
+			sorted = new long[0];
+			for(int l = 1; l < this.latencies.length; l++) {
+				int size = sorted.length;
+				sorted = Arrays.copyOf(sorted, size + this.latencyCount[l]);
+				System.arraycopy(this.latencies[l], 0, sorted, size, this.latencyCount[l]);
+			}
+		}
+		if(sorted.length == 0)
+			return 0;
+		Arrays.sort(sorted);
+		int rank = (int)Math.ceil(percent / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+	}
+
+	/**
+	 * describe the statistics: one line for the games, then one line per level played
+	 * @return the description
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("games %d, mean score %.1f, survival %.1f%%, moves %d, latency p50 %.3fms p90 %.3fms p99 %.3fms max %.3fms, table hits %d misses %d (%.1f%%)",
+			this.games, this.mean(this.score, this.games), 100 * this.mean(this.survivals, this.games), this.actions,
+			this.getLatencyPercentile(0, 50) / 1e6, this.getLatencyPercentile(0, 90) / 1e6, this.getLatencyPercentile(0, 99) / 1e6, this.getLatencyPercentile(0, 100) / 1e6,
+			this.getTableHits(0), this.getTableMisses(0), 100 * this.mean(this.getTableHits(0), this.getTableHits(0) + this.getTableMisses(0))));
+		for(int level = 1; level < this.plays.length; level++) {
+			if(this.plays[level] > 0) {
+				sb.append(String.format("\nmap %d: played %d, cleared %.1f%%, lives lost %d, mean moves %.1f, mean score %.1f, beliefs mean %.1f max %d, latency p50 %.3fms p90 %.3fms p99 %.3fms, table hits %.1f%%",
+					level, this.plays[level], 100 * this.mean(this.cleared[level], this.plays[level]), this.deaths[level],
+					this.mean(this.ticks[level], this.plays[level]), this.mean(this.levelScore[level], this.plays[level]),
+					this.mean(this.beliefStates[level], this.latencyCount[level]), this.maxBeliefStates[level],
+					this.getLatencyPercentile(level, 50) / 1e6, this.getLatencyPercentile(level, 90) / 1e6, this.getLatencyPercentile(level, 99) / 1e6,
+					100 * this.mean(this.tableHits[level], this.tableHits[level] + this.tableMisses[level])));
+			}
+		}
+		return sb.toString();
+	}
+
+	private double mean(long sum, long count) {
+		return count == 0 ? 0 : (double)sum / count;
+	}
+
+	private void addLatency(int level, long latency) {
+		if(this.latencyCount[level] == this.latencies[level].length)
+			this.latencies[level] = Arrays.copyOf(this.latencies[level], this.latencyCount[level] * 2);
+		this.latencies[level][this.latencyCount[level]++] = latency;
+	}
+}
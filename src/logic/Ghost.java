@@ -1,6 +1,5 @@
 package logic;
 //import java.awt.*;
-import java.util.ArrayList;
 
 import data.*;
 import view.*;
@@ -18,14 +17,11 @@ public class Ghost extends Entite {
 	private GhostSkin figures;
 	/** La couleur du fantome */
 	private String couleur;
-	/** Le mouvement que vient d'effectuer le fantome */
-	private String previousMove;
 	/** Compteur qui va aléatoirement faire faire demi-tour au fantome */
 	//private int compteurInversionMove;
 	/** Compteur du temps de peur des fantomes */
 	private int compteurPeur;
 	private int id;
-	private ArrayList<BeliefState> visibleBeliefStateCopy;
 
 	public static final int SPEED_GHOST = 10;//doit etre un multiple de taille de case
 	public static final int SCORE_FANTOME = 100;
@@ -39,7 +35,6 @@ public class Ghost extends Entite {
 	 * @pre color different of ("white")
 	 */
 	public Ghost(int size, int x, int y, String color, Map map, int id) {
-		this.previousMove = PacManLauncher.UP;
 		//this.initCompteur();
 
 		this.compteurPeur = 0;
@@ -55,42 +50,6 @@ public class Ghost extends Entite {
 		this.id = id;
 	}
 
-	/**
-	 *	Choisir une direction aleatoire
-	 */
-	public int move (boolean with) {
-		if (this.compteurPeur == 0) {
-			this.setEtatNormal();
-		}
-		if (this.compteurPeur > 0) {
-			this.compteurPeur--;
-		}
-		return checkCroisement(this.previousMove, with);
-	}
-
-	/**
-	 * deplace l'entite dans la direction demander
-	 *
-	 * @param String toward direction demande
-	 * @pre (toward.equals("UP") || toward.equals("DOWN") || toward.equals("LEFT") || toward.equals("RIGHT"))
-	 */
-	public boolean move (String toward) {
-		this.previousMove = toward;
-		int dx = 0;
-		int dy = 0;
-
-		int[] crossMap = this.crossMap(toward);
-		dx = crossMap[0];
-		dy = crossMap[1];
-
-		crossMap = this.checkColision(toward, dx, dy);
-		dx = crossMap[0];
-		dy = crossMap[1];
-
-		this.move(dx, dy);//move the ghost
-		return false;
-	}
-
 	/**
 	 * deplace l'entite d'une variation de (dx,dy)
 	 * @param int dx le decalage x
@@ -165,194 +124,6 @@ public class Ghost extends Entite {
 		return this.compteurPeur;
 	}
 
-	/**
-	 * [checkCroisement description]
-	 * @param String toward [description]
-	 */
-	public int checkCroisement (String toward, boolean moveBeliefState) {
-		boolean haveMoved = false;
-		int reInit = 0;
-		Figure[][] map = this.map.getMap();
-
-		if(this.getX() % this.map.getTailleCase() == 0 && this.getY() % this.map.getTailleCase() == 0) {//si le ghost se trouve sur une case
-			int yG = this.getX() / this.map.getTailleCase();//position actuelle du ghost
-			int xG = this.getY() / this.map.getTailleCase();
-			Position pacmanOldPos = this.map.getBeliefState().getPacmanOldPosition();//position avant deplacement de Pacman
-			int xP = pacmanOldPos.x, yP = pacmanOldPos.y;
-			
-			if(this.map.isVisible(xG, yG, xP, yP)) {
-				this.figures.setVisible(true);
-			}
-			else
-				this.figures.setVisible(false);
-			if(this.map.isVisible(xG, yG, xP, yP) && this.compteurPeur == 0) {//si le ghost etait visible et n'avait pas peur
-				if(xG > xP) {//il prend la direction du Pacman
-					this.move(PacManLauncher.UP);
-					if(moveBeliefState)
-						reInit = this.map.getBeliefState().moveGhost(-1, 0, this.id, this.previousMove.charAt(0));
-				}
-				else {
-					if(xG < xP) {
-						this.move(PacManLauncher.DOWN);
-						if(moveBeliefState)
-							reInit = this.map.getBeliefState().moveGhost(1, 0, this.id, this.previousMove.charAt(0));
-					}
-					else {
-						if(yG < yP) {
-
-							this.move(PacManLauncher.RIGHT);
-							if(moveBeliefState)
-								reInit = this.map.getBeliefState().moveGhost(0, 1, this.id, this.previousMove.charAt(0));
-						}
-						else {
-							if(yG > yP) {
-								this.move(PacManLauncher.LEFT);
-								if(moveBeliefState)
-									reInit = this.map.getBeliefState().moveGhost(0, -1, this.id, this.previousMove.charAt(0));
-							}
-							else {
-								System.out.println("problem");
-								/*switch(this.map.getBeliefState().getPacmanPos().dir) {
-								case 'U': this.move(PacManLauncher.DOWN); break;
-								case 'D': this.move(PacManLauncher.UP); break;
-								case 'L': this.move(PacManLauncher.RIGHT); break;
-								case 'R': this.move(PacManLauncher.LEFT); break;
-								}
-								if(moveBeliefState)
-									reInit = reInit || this.map.getBeliefState().moveGhost(0, 0, this.id, this.previousMove.charAt(0));*/
-							}
-						}
-					}
-				}
-				haveMoved = true;
-			}
-			else {//si le ghost n'est pas visible ou qu'il a peur
-				int[] colLign = this.getColLign();
-				int colonne = colLign[0];
-				int ligne = colLign[1];
-
-				Figure fup = map[ligne-1][colonne];
-				Figure fdown = map[ligne+1][colonne];
-				Figure fleft = map[ligne][colonne-1];
-				Figure fright = map[ligne][colonne+1];
-
-				ArrayList<Figure> caseAround =  new ArrayList<Figure>();
-				caseAround.add(fup);
-				caseAround.add(fdown);
-				caseAround.add(fleft);
-				caseAround.add(fright);
-
-				switch (toward) {
-				case PacManLauncher.UP :
-					if (fleft.getClass().getName().compareTo("view.Wall") != 0 || fright.getClass().getName().compareTo("view.Wall") != 0) {
-						caseAround.remove(fdown);
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					} else if (fup.getClass().getName().compareTo("view.Wall") == 0) {
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					}
-					break;
-				case PacManLauncher.DOWN :
-					if (fleft.getClass().getName().compareTo("view.Wall") != 0 || fright.getClass().getName().compareTo("view.Wall") != 0) {
-						caseAround.remove(fup);
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					} else if (fdown.getClass().getName().compareTo("view.Wall") == 0) {
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					}
-					break;
-				case PacManLauncher.LEFT :
-					if (fup.getClass().getName().compareTo("view.Wall") != 0 || fdown.getClass().getName().compareTo("view.Wall") != 0) {
-						caseAround.remove(fright);
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					} else if (fleft.getClass().getName().compareTo("view.Wall") == 0) {
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					}
-					break;
-				case PacManLauncher.RIGHT :
-					if (fup.getClass().getName().compareTo("view.Wall") != 0 || fdown.getClass().getName().compareTo("view.Wall") != 0) {
-						caseAround.remove(fleft);
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					} else if (fright.getClass().getName().compareTo("view.Wall") == 0) {
-						reInit = this.chooseMove(toward, caseAround, fup, fdown, fleft, fright, moveBeliefState);
-						haveMoved = true;
-					}
-					break;
-				}
-			}
-			if(!haveMoved && moveBeliefState) {//si il n'a pas bouge il garde la meme direction
-				switch(toward){
-				case PacManLauncher.UP: reInit = this.map.getBeliefState().moveGhost(-1, 0, this.id, this.previousMove.charAt(0)); /*System.out.println("moveGhost(-1, 0, " + this.id + ", " + this.previousMove.charAt(0) + ")");*/ break;
-				case PacManLauncher.DOWN: reInit = this.map.getBeliefState().moveGhost(1, 0, this.id, this.previousMove.charAt(0)); /*System.out.println("moveGhost(1, 0, " + this.id + ", " + this.previousMove.charAt(0) + ")");*/ break;
-				case PacManLauncher.LEFT: reInit = this.map.getBeliefState().moveGhost(0, -1, this.id, this.previousMove.charAt(0)); /*System.out.println("moveGhost(0, -1, " + this.id + ", " + this.previousMove.charAt(0) + ")");*/ break;
-				case PacManLauncher.RIGHT: reInit = this.map.getBeliefState().moveGhost(0, 1, this.id, this.previousMove.charAt(0)); /*System.out.println("moveGhost(0, 1, " + this.id + ", " + this.previousMove.charAt(0) + ")");*/ break;
-				}
-			}
-			/*if(moveBeliefState && this.id == (this.map.getPGhost().size() - 1)) {
-				this.visibleBeliefStateCopy = (ArrayList<BeliefState>)this.map.getVisibleBeliefState().clone();
-			}*/
-		}
-
-		if (!haveMoved) {
-			this.move(this.previousMove);
-		}
-		return reInit;
-	}
-
-	public int chooseMove(String toward, ArrayList<Figure> listF, Figure fup, Figure fdown, Figure fleft, Figure fright, boolean moveBeliefState) {
-		ArrayList<Figure> toGo =  new ArrayList<Figure>();
-		int returnedValue = 0;
-		for (Figure f : listF) {
-			if (f.getClass().getName().compareTo("view.Wall") != 0) {
-				toGo.add(f);
-			}
-		}
-
-		Figure nextMove = toGo.get((int)Math.round(Math.floor(Math.random()*toGo.size())));
-
-		if (nextMove == null) {
-			this.move(toward);
-			if(moveBeliefState) {
-				switch(toward){
-				case PacManLauncher.UP: returnedValue = this.map.getBeliefState().moveGhost(-1, 0, this.id, this.previousMove.charAt(0)); break;
-				case PacManLauncher.DOWN: returnedValue = this.map.getBeliefState().moveGhost(1, 0, this.id, this.previousMove.charAt(0)); break;
-				case PacManLauncher.LEFT: returnedValue = this.map.getBeliefState().moveGhost(0, -1, this.id, this.previousMove.charAt(0)); break;
-				case PacManLauncher.RIGHT: returnedValue = this.map.getBeliefState().moveGhost(0, 1, this.id, this.previousMove.charAt(0)); break;
-				}
-			}
-		} else if (nextMove == fup) {
-			this.move(PacManLauncher.UP);
-			if(moveBeliefState)
-				returnedValue = this.map.getBeliefState().moveGhost(-1, 0, this.id, this.previousMove.charAt(0));
-		} else if (nextMove == fdown) {
-			this.move(PacManLauncher.DOWN);
-			if(moveBeliefState)
-				returnedValue = this.map.getBeliefState().moveGhost(1, 0, this.id, this.previousMove.charAt(0));
-		} else if (nextMove == fleft) {
-			this.move(PacManLauncher.LEFT);
-			if(moveBeliefState)
-				returnedValue = this.map.getBeliefState().moveGhost(0, -1, this.id, this.previousMove.charAt(0));
-		} else if (nextMove == fright) {
-			this.move(PacManLauncher.RIGHT);
-			if(moveBeliefState)
-				returnedValue = this.map.getBeliefState().moveGhost(0, 1, this.id, this.previousMove.charAt(0));
-		}
-		return returnedValue;
-	}
-
-	/**
-	 *	les fantomes agissent sur les murs
-	 * mais pas les gommes
-	 */
-	public boolean typeCaseToCheck (Figure f) {
-		return (f instanceof Wall);
-	}
-
 	protected void actionWithGom (Figure[][] map, int i, int j) {
 		//no interaction
 	}
@@ -363,9 +134,13 @@ public class Ghost extends Entite {
 	public void draw() {
 		this.figures.draw();
 	}
-	
-	public void setPreviousMove(String toward) {
-		this.previousMove = toward;
+
+	/**
+	 * montre ou cache le fantome selon que Pacman le voit ou non
+	 * @param isVisible vrai si Pacman voit le fantome
+	 */
+	public void setVisible(boolean isVisible) {
+		this.figures.setVisible(isVisible);
 	}
 
 }
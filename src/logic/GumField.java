@@ -0,0 +1,218 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * distance in the maze from each cell to the closest gum (multi-source BFS from all the gums).
+ * The field is built once, then updated incrementally when a gum is eaten or put back:
+ * only the cells whose closest gum was the eaten one are recomputed.
+ * A field can be shared by several states (copy on write): once shared it is never modified, a state copies it before updating it.
+ */
+final class GumField {
+	/** distance of the cells from which no gum can be reached (and of the walls) */
+	static final int INFINITE = Integer.MAX_VALUE;
+	/** distance to the closest gum of each cell (row * taille + column) */
+	private final int[] distances;
+	/** cells of the walls, shared with the states of the level */
+	private final long[] walls;
+	/** cell reached from each cell by a move in each direction (cell * 4 + direction), -1 outside the grid */
+	private final int[] neighbours;
+	/** true once the field is used by several states, it must then be copied before being updated */
+	private volatile boolean shared;
+
+	/**
+	 * build the field of a set of gums
+	 * @param gums the cells of the gums
+	 * @param walls the cells of the walls
+	 * @param neighbours cell reached from each cell by a move in each direction (cell * 4 + direction), -1 outside the grid
+	 */
+	GumField(long[] gums, long[] walls, int[] neighbours) {
+		this.walls = walls;
+		this.neighbours = neighbours;
+		this.distances = new int[neighbours.length / 4];
+		Arrays.fill(this.distances, INFINITE);
+		int[] queue = new int[this.distances.length];
+		int end = 0;
+		for(int cell = BitBoard.nextSetBit(gums, 0); cell >= 0 && cell < this.distances.length; cell = BitBoard.nextSetBit(gums, cell + 1)) {
+			this.distances[cell] = 0;
+			queue[end++] = cell;
+		}
+		for(int start = 0; start < end; start++) {
+			int cell = queue[start];
+			for(int d = 0; d < 4; d++) {
+				int next = this.neighbours[cell * 4 + d];
+				if(next >= 0 && this.distances[next] == INFINITE && !BitBoard.get(this.walls, next)) {
+					this.distances[next] = this.distances[cell] + 1;
+					queue[end++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * construct a copy of a field
+	 * @param toCopy the field to copy
+	 */
+	GumField(GumField toCopy) {
+		this.walls = toCopy.walls;
+		this.neighbours = toCopy.neighbours;
+		this.distances = toCopy.distances.clone();
+	}
+
+	/**
+	 * mark the field as used by several states (called when a state is copied, possibly by several threads at the same time)
+	 */
+	void share() {
+		this.shared = true;
+	}
+
+	/**
+	 * test if the field is used by several states
+	 * @return true if the field must be copied before being updated
+	 */
+	boolean isShared() {
+		return this.shared;
+	}
+
+	/**
+	 * return the distance from a cell to the closest gum
+	 * @param cell index of the cell
+	 * @return the distance, INFINITE if no gum can be reached
+	 */
+	int get(int cell) {
+		return this.distances[cell];
+	}
+
+	/**
+	 * return the first cell of a shortest path from a cell to the closest gum (first direction in the order U, D, L, R)
+	 * @param cell index of the cell
+	 * @return the next cell, -1 if the cell is a gum or if no gum can be reached
+	 */
+	int descend(int cell) {
+		int distance = this.distances[cell];
+		if(distance == 0 || distance == INFINITE)
+			return -1;
+		for(int d = 0; d < 4; d++) {
+			int next = this.neighbours[cell * 4 + d];
+			if(next >= 0 && this.distances[next] == distance - 1)
+				return next;
+		}
+		return -1;
+	}
+
+	/**
+	 * update the field when a gum is put back on a cell
+	 * @param cell index of the cell of the gum
+	 */
+	void addGum(int cell) {
+		this.distances[cell] = 0;
+		int[] queue = {cell};
+		int end = 1;
+		for(int start = 0; start < end; start++) {
+			int current = queue[start];
+			for(int d = 0; d < 4; d++) {
+				int next = this.neighbours[current * 4 + d];
+				if(next >= 0 && this.distances[current] + 1 < this.distances[next] && !BitBoard.get(this.walls, next)) {
+					this.distances[next] = this.distances[current] + 1;
+					if(end == queue.length)
+						queue = Arrays.copyOf(queue, end * 2);
+					queue[end++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * update the field when the gum of a cell is eaten.
+	 * The cells all of whose shortest paths go through the eaten gum are first collected (level by level from the gum),
+	 * then their distances are recomputed from the cells around them, in increasing order of distance.
+	 * @param cell index of the cell of the gum
+	 */
+	void removeGum(int cell) {
+		if(this.distances[cell] != 0)
+			return;
+		// cellules qui ont perdu leur gomme la plus proche, rangees par distance croissante a la gomme mangee
+		int[] lost = {cell};
+		int end = 1;
+		this.distances[cell] = INFINITE;
+		int levelStart = 0, level = 0;
+		while(levelStart < end) {
+			int levelEnd = end;
+			for(int i = levelStart; i < levelEnd; i++) {
+				for(int d = 0; d < 4; d++) {
+					int next = this.neighbours[lost[i] * 4 + d];
+					if(next >= 0 && this.distances[next] == level + 1 && !this.hasNeighbourAt(next, level)) {
+						this.distances[next] = INFINITE;
+						if(end == lost.length)
+							lost = Arrays.copyOf(lost, end * 2);
+						lost[end++] = next;
+					}
+				}
+			}
+			levelStart = levelEnd;
+			level++;
+		}
+		// nouvelle distance de chaque cellule perdue a partir des cellules voisines non perdues
+		long[] seeds = new long[end];
+		int nbrOfSeeds = 0;
+		for(int i = 0; i < end; i++) {
+			int best = this.bestNeighbour(lost[i]);
+			if(best != INFINITE)
+				seeds[nbrOfSeeds++] = ((long) (best + 1) << 32) | lost[i];
+		}
+		Arrays.sort(seeds, 0, nbrOfSeeds);
+		// parcours en largeur a plusieurs sources de distances differentes : on prend toujours la plus petite des deux files
+		int[] queue = new int[end];
+		int queueStart = 0, queueEnd = 0, seed = 0;
+		while(seed < nbrOfSeeds || queueStart < queueEnd) {
+			int current;
+			if(queueStart == queueEnd || (seed < nbrOfSeeds && (int) (seeds[seed] >>> 32) <= this.distances[queue[queueStart]])) {
+				current = (int) seeds[seed];
+				int distance = (int) (seeds[seed++] >>> 32);
+				if(distance >= this.distances[current])
+					continue;
+				this.distances[current] = distance;
+			}
+			else {
+				current = queue[queueStart++];
+			}
+			for(int d = 0; d < 4; d++) {
+				int next = this.neighbours[current * 4 + d];
+				if(next >= 0 && this.distances[current] + 1 < this.distances[next] && !BitBoard.get(this.walls, next)) {
+					this.distances[next] = this.distances[current] + 1;
+					queue[queueEnd++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * test if a cell has a neighbour at a given distance of a gum
+	 * @param cell index of the cell
+	 * @param distance the distance
+	 * @return true if one of the neighbours is at the given distance
+	 */
+	private boolean hasNeighbourAt(int cell, int distance) {
+		for(int d = 0; d < 4; d++) {
+			int next = this.neighbours[cell * 4 + d];
+			if(next >= 0 && this.distances[next] == distance)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * return the smallest distance of the neighbours of a cell
+	 * @param cell index of the cell
+	 * @return the smallest distance, INFINITE if no neighbour reaches a gum
+	 */
+	private int bestNeighbour(int cell) {
+		int best = INFINITE;
+		for(int d = 0; d < 4; d++) {
+			int next = this.neighbours[cell * 4 + d];
+			if(next >= 0)
+				best = Math.min(best, this.distances[next]);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,277 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * game played on the logical grid only, without window and without animation: each tick, the policy chooses a move,
+ * then Pacman and the ghosts move of one cell in the state of the game (BeliefState.step) and the visible belief states
+ * are updated as in PacManLauncher.tick (all the states, a ParticleFilter or a FactoredBelief).
+ * The levels follow each other as in PacManLauncher.main.
+ * PacManLauncher plays the same turns and only animates them: with the same seed and a policy which does not depend on the time,
+ * the game in the window and the headless game are the same.
+ * All the random choices of a game, those of the policy included, come from one generator built from the seed of the game,
+ * so that a game can be replayed (as long as the policy does not depend on the time).
+ * java -Djava.awt.headless=true -cp bin logic.HeadlessGame [policy] [budget ms] [games] [max actions] [particles | factored] [seed]
+ */
+public class HeadlessGame {
+	private static final String[] ACTIONS = {PacManLauncher.UP, PacManLauncher.DOWN, PacManLauncher.LEFT, PacManLauncher.RIGHT};
+
+	private final PacmanPolicy policy;
+	/** time given to each move of the policy, in nanoseconds */
+	private final long budget;
+	/** bound of the visible belief states, both null if all the states are kept */
+	private final ParticleFilter particleFilter;
+	private final FactoredBelief factoredBelief;
+	/** seed of the game, and generator of the moves of the ghosts, of the particle filter and of the policy built from it */
+	private final long seed;
+	private final SplittableRandom random;
+	private data.Map map;
+	private int level;
+	/** number of moves of the current level, and of the game */
+	private int ticks;
+	private long nbrOfActions;
+	/** total time spent by the policy, in nanoseconds */
+	private long decisionTime;
+	/** score and lives of Pacman at the start of the current level */
+	private int levelScore, levelLife;
+	/** statistics recorded during the game, null if none */
+	private GameStatistics statistics;
+
+	/**
+	 * construct a game, the first level is loaded by play or startLevel
+	 * @param policyName the name in the PolicyRegistry of the policy choosing the moves of Pacman, built with a seed drawn from the game
+	 * @param budget the time given to each move of the policy, in nanoseconds
+	 * @param nbrOfParticles the maximal number of visible belief states, 0 to keep all of them, -1 for the factored belief
+	 * @param seed the seed of all the random choices of the game
+	 */
+	public HeadlessGame(String policyName, long budget, int nbrOfParticles, long seed) {
+		this.budget = budget;
+		this.seed = seed;
+		this.random = new SplittableRandom(seed);
+		this.policy = PolicyRegistry.create(policyName, this.random.nextLong());//tiree en premier, comme PacManLauncher
+		this.particleFilter = nbrOfParticles > 0 ? new ParticleFilter(nbrOfParticles, this.random.nextLong()) : null;
+		this.factoredBelief = nbrOfParticles < 0 ? new FactoredBelief() : null;
+	}
+
+	/**
+	 * play levels until Pacman has no life left or the number of actions is reached
+	 * @param maxActions the maximal number of actions of the game
+	 */
+	public void play(long maxActions) {
+		int lvl = 1;
+		this.startLevel(lvl);
+		while(true) {
+			boolean playing = true;
+			while(playing && this.nbrOfActions < maxActions) {
+				playing = this.step();
+			}
+			this.endLevel();
+			if(this.getLife() <= 0 || this.nbrOfActions >= maxActions)
+				break;
+			lvl = lvl % PacManLauncher.NBR_LVL + 1;
+			this.startLevel(lvl);
+		}
+		if(this.statistics != null)
+			this.statistics.recordGame(this.getScore(), this.nbrOfActions, this.getLife() > 0);
+	}
+
+	/**
+	 * load a level, Pacman keeps its score, its lives and its next palier
+	 * @param lvl the number of the level
+	 */
+	public void startLevel(int lvl) {
+		if(this.map == null)
+			this.startLevel(lvl, 0, Pacman.LIFE_START, Pacman.PALIER);
+		else
+			this.startLevel(lvl, this.getScore(), this.getLife(), this.map.getBeliefState().getPalier());
+	}
+
+	/**
+	 * load a level with a given score and given lives of Pacman
+	 * @param lvl the number of the level
+	 * @param score the score of Pacman at the start of the level
+	 * @param life the lives of Pacman at the start of the level
+	 * @param palier the score at which Pacman wins its next life
+	 */
+	public void startLevel(int lvl, int score, int life, int palier) {
+		this.map = new data.Map(lvl, score, life, palier);
+		this.level = lvl;
+		this.ticks = 0;
+		this.levelScore = this.getScore();
+		this.levelLife = this.getLife();
+	}
+
+	/**
+	 * record the end of the current level in the statistics
+	 */
+	private void endLevel() {
+		if(this.statistics != null) {
+			this.statistics.recordLevel(this.level, this.ticks, this.getScore() - this.levelScore, this.getNbrOfGommes() == 0, this.levelLife - this.getLife());
+			TranspositionTable table = this.map.getBeliefState().getLevel().getTranspositionTable();
+			this.statistics.recordTranspositions(this.level, table.getHits(), table.getMisses());
+		}
+	}
+
+	/**
+	 * play one move of Pacman and of the ghosts
+	 * @return false if the level is over (no more gum or no more life), nothing is played then
+	 */
+	public boolean step() {
+		BeliefState state = this.map.getBeliefState();
+		if(state.getNbrOfGommes() == 0 || state.getLife() <= 0)
+			return false;
+		long start = System.nanoTime();
+		String action = this.policy.decide(this.map.getVisibleBeliefState(), this.budget);
+		long latency = System.nanoTime() - start;
+		this.decisionTime += latency;
+		if(this.statistics != null)
+			this.statistics.recordMove(this.level, latency, this.map.getVisibleBeliefState().size());
+		if(action == null)//plus de gomme
+			return false;
+		int d;
+		if(action.equals("STOP"))//aucune action possible : Pacman garde sa direction
+			d = BeliefState.directionIndex(state.getPacmanPos().dir);
+		else
+			d = BeliefState.directionIndex(action.charAt(0));
+		ArrayList<BeliefState> visibleBeliefState = this.predict(this.map.getVisibleBeliefState(), ACTIONS[d]);
+		state.step(d, this.random);
+		this.observe(visibleBeliefState, state);
+		this.map.setVisibleBeliefState(visibleBeliefState);
+		this.ticks++;
+		this.nbrOfActions++;
+		return true;
+	}
+
+	/**
+	 * compute the visible belief states after a move of Pacman (as PacManLauncher.predict)
+	 * @param visibleBeliefState the visible belief states before the move
+	 * @param toward the move of Pacman
+	 * @return the visible belief states after the move
+	 */
+	private ArrayList<BeliefState> predict(ArrayList<BeliefState> visibleBeliefState, String toward) {
+		if(this.factoredBelief != null)
+			return this.factoredBelief.predict(visibleBeliefState, toward);
+		if(this.particleFilter != null)
+			return this.particleFilter.predict(visibleBeliefState, toward);
+		ArrayList<BeliefState> newVisibleBeliefState = new ArrayList<BeliefState>();
+		for(BeliefState beliefState: visibleBeliefState) {
+			newVisibleBeliefState.addAll(beliefState.extendsBeliefState(toward).getBeliefStates());
+		}
+		return newVisibleBeliefState;
+	}
+
+	/**
+	 * keep the visible belief states consistent with the positions of the ghosts (as PacManLauncher.observe)
+	 * @param visibleBeliefState the visible belief states, modified in place
+	 * @param state the state of the game
+	 */
+	private void observe(ArrayList<BeliefState> visibleBeliefState, BeliefState state) {
+		if(this.factoredBelief != null) {
+			this.factoredBelief.observe(visibleBeliefState, state);
+			return;
+		}
+		for(int k = 0; k < state.getNbrOfGhost(); k++) {
+			if(this.particleFilter != null)
+				this.particleFilter.observe(visibleBeliefState, k, state.getPGhost(k));
+			else
+				BeliefState.filter(visibleBeliefState, k, state.getPGhost(k));
+		}
+	}
+
+	/**
+	 * record the statistics of the game (moves, levels and end of the game played by play) in a given object
+	 * @param statistics the statistics to fill, null to record nothing
+	 */
+	public void setStatistics(GameStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	public int getScore() {
+		return this.map.getBeliefState().getScore();
+	}
+
+	public int getLife() {
+		return this.map.getBeliefState().getLife();
+	}
+
+	public int getPalier() {
+		return this.map.getBeliefState().getPalier();
+	}
+
+	public int getLevel() {
+		return this.level;
+	}
+
+	public int getNbrOfGommes() {
+		return this.map.getBeliefState().getNbrOfGommes();
+	}
+
+	/**
+	 * return the number of moves played in the current level
+	 * @return the number of moves
+	 */
+	public int getTicks() {
+		return this.ticks;
+	}
+
+	/**
+	 * return the number of moves played since the start of the game
+	 * @return the number of moves
+	 */
+	public long getNbrOfActions() {
+		return this.nbrOfActions;
+	}
+
+	/**
+	 * return the mean time taken by the policy to choose a move
+	 * @return the mean time, in milliseconds
+	 */
+	public double getMeanTimeResolution() {
+		return this.nbrOfActions == 0 ? 0 : this.decisionTime / 1e6 / this.nbrOfActions;
+	}
+
+	/**
+	 * return the number of visible belief states
+	 * @return the size of the list of visible belief states
+	 */
+	public int getNbrOfBeliefStates() {
+		return this.map.getVisibleBeliefState().size();
+	}
+
+	/**
+	 * play games one after the other and print the result of each of them; the seeds of the games are drawn from the seed given (or printed)
+	 * @param args [name of the policy] [time given to each move in ms] [number of games] [maximal number of actions of a game] [maximal number of visible belief states, 0 for all of them, or "factored"] [seed]
+	 */
+	public static void main(String[] args) {
+		String policyName = args.length > 0 ? args[0] : PolicyRegistry.DEFAULT;
+		long budget = (args.length > 1 ? Long.parseLong(args[1]) : 50) * 1000000L;
+		int games = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		long maxActions = args.length > 3 ? Long.parseLong(args[3]) : 20000;
+		int nbrOfParticles = 0;
+		if(args.length > 4)
+			nbrOfParticles = args[4].equals("factored") ? -1 : Integer.parseInt(args[4]);
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+		if(!PolicyRegistry.contains(policyName)) {
+			System.out.println("unknown policy " + policyName + ", available: " + PolicyRegistry.getNames());
+			return;
+		}
+		System.out.println("seed: " + seed);
+		SplittableRandom seeds = new SplittableRandom(seed);
+		long start = System.nanoTime(), totalScore = 0, totalActions = 0;
+		for(int game = 1; game <= games; game++) {
+			HeadlessGame headlessGame = new HeadlessGame(policyName, budget, nbrOfParticles, seeds.nextLong());
+			headlessGame.play(maxActions);
+			totalScore += headlessGame.getScore();
+			totalActions += headlessGame.getNbrOfActions();
+			System.out.println("game " + game + " (seed " + headlessGame.getSeed() + "): score " + headlessGame.getScore() + ", life " + headlessGame.getLife() + ", level " + headlessGame.getLevel()
+				+ ", actions " + headlessGame.getNbrOfActions() + ", mean time resolution " + headlessGame.getMeanTimeResolution() + "ms");
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println("policy: " + policyName + "\nmean score: " + (double)totalScore / games + "\nnbr of actions: " + totalActions + "\ngames per minute: " + games * 60 / seconds);
+	}
+}
@@ -0,0 +1,206 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import data.Distances;
+import data.GhostInfluence;
+import data.Visibility;
+
+/**
+ * data of a level shared by all the states of this level: the size of the grid, the initial positions of Pacman and of the ghosts,
+ * the visibility and the distances between the cells, the neighbours of each cell, the influence zones of the ghosts
+ * and the table of the results of extendsBeliefState.
+ * It is built once by data.Map when the level is loaded and never modified afterwards (the transposition table is synchronized,
+ * the influence zones are computed on demand and shared),
+ * so that several levels or several games can be played at the same time.
+ */
+public final class LevelContext {
+	/** distance in the maze up to which a cell is in the influence zone of a ghost */
+	public static final int GHOST_RANGE = 4;
+	/** number of rows (and columns) of the grid, size of a cell in pixels */
+	private final int taille, tailleCase;
+	/** initial cell (row * taille + column) of Pacman and of each ghost */
+	private final int pacmanHome;
+	private final int[] ghostHomes;
+	/** cells (row, column) that are not walls */
+	private final List<int[]> gamePositions;
+	private final Visibility visible;
+	private final Distances distances;
+	/** cell reached from each cell by a move in each direction (index cell * 4 + BeliefState.directionIndex), -1 outside the grid */
+	private final int[] neighbours;
+	/** cells close to each cell a ghost may be on, computed on the first request */
+	private final GhostInfluence ghostInfluence;
+	/** results of extendsBeliefState(String) already computed in this level */
+	private final TranspositionTable transpositions;
+
+	/**
+	 * construct the context of a level
+	 * @param taille the number of rows (and columns) of the grid
+	 * @param tailleCase the size of a cell in pixels
+	 * @param pacmanXInit the initial abscissa of Pacman in pixels
+	 * @param pacmanYInit the initial ordinate of Pacman in pixels
+	 * @param listPGhostInit the initial coordinates (x, y) of each ghost in pixels
+	 * @param gamePositions the cells (row, column) that are not walls
+	 * @param visible the visibility between the cells
+	 * @param distances the distances in the maze between the cells
+	 */
+	public LevelContext(int taille, int tailleCase, int pacmanXInit, int pacmanYInit, ArrayList<int[]> listPGhostInit, ArrayList<int[]> gamePositions, Visibility visible, Distances distances) {
+		this.taille = taille;
+		this.tailleCase = tailleCase;
+		this.pacmanHome = (pacmanYInit / tailleCase) * taille + pacmanXInit / tailleCase;
+		this.ghostHomes = new int[listPGhostInit.size()];
+		for(int k = 0; k < this.ghostHomes.length; k++) {
+			int[] initPosG = listPGhostInit.get(k);
+			this.ghostHomes[k] = (initPosG[1] / tailleCase) * taille + initPosG[0] / tailleCase;
+		}
+		ArrayList<int[]> positions = new ArrayList<int[]>(gamePositions.size());
+		for(int[] pos: gamePositions) {
+			positions.add(pos.clone());
+		}
+		this.gamePositions = Collections.unmodifiableList(positions);
+		this.visible = visible;
+		this.distances = distances;
+		this.neighbours = new int[taille * taille * 4];
+		for(int cell = 0; cell < taille * taille; cell++) {
+			int row = cell / taille, column = cell % taille;
+			this.neighbours[cell * 4] = row > 0 ? cell - taille : -1;
+			this.neighbours[cell * 4 + 1] = row < taille - 1 ? cell + taille : -1;
+			this.neighbours[cell * 4 + 2] = column > 0 ? cell - 1 : -1;
+			this.neighbours[cell * 4 + 3] = column < taille - 1 ? cell + 1 : -1;
+		}
+		this.ghostInfluence = new GhostInfluence(distances, LevelContext.GHOST_RANGE);
+		this.transpositions = new TranspositionTable(4096);
+	}
+
+	/**
+	 * return the number of rows (and columns) of the grid
+	 * @return the size of the grid
+	 */
+	public int getTaille() {
+		return this.taille;
+	}
+
+	/**
+	 * return the size of a cell in pixels
+	 * @return the size of a cell
+	 */
+	public int getTailleCase() {
+		return this.tailleCase;
+	}
+
+	/**
+	 * return the initial position of Pacman
+	 * @return a new position, direction 'U'
+	 */
+	Position getPacmanHome() {
+		return new Position(this.pacmanHome / this.taille, this.pacmanHome % this.taille, 'U');
+	}
+
+	/**
+	 * return the initial position of a ghost
+	 * @param k Id of the ghost
+	 * @return a new position, direction 'U'
+	 */
+	Position getGhostHome(int k) {
+		return new Position(this.ghostHomes[k] / this.taille, this.ghostHomes[k] % this.taille, 'U');
+	}
+
+	/**
+	 * return the number of ghosts of the level
+	 * @return the number of ghosts
+	 */
+	public int getNbrOfGhosts() {
+		return this.ghostHomes.length;
+	}
+
+	/**
+	 * return the cells that are not walls
+	 * @return the cells (row, column), the list can't be modified
+	 */
+	public List<int[]> getGamePositions() {
+		return this.gamePositions;
+	}
+
+	/**
+	 * return true if two cells are visible from each other
+	 * @param row1 row of the first cell
+	 * @param column1 column of the first cell
+	 * @param row2 row of the second cell
+	 * @param column2 column of the second cell
+	 * @return true if the cells are on the same row or column without wall between them
+	 */
+	public boolean isVisible(int row1, int column1, int row2, int column2) {
+		return this.visible.isVisible(row1, column1, row2, column2);
+	}
+
+	public Visibility getVisibility() {
+		return this.visible;
+	}
+
+	public Distances getDistances() {
+		return this.distances;
+	}
+
+	/**
+	 * return the number of cells that are not walls
+	 * @return the number of open cells
+	 */
+	public int getNbrOfOpenCells() {
+		return this.distances.getNbLibres();
+	}
+
+	/**
+	 * return the index of a cell among the cells that are not walls (the numbering of Distances, in the order of the cells),
+	 * used to size the data kept for each cell to the open cells only
+	 * @param cell index of the cell (row * taille + column)
+	 * @return the index of the open cell, -1 for a wall
+	 */
+	public int openCell(int cell) {
+		return this.distances.numero(cell);
+	}
+
+	/**
+	 * return the cell of an index among the cells that are not walls
+	 * @param open the index of the open cell
+	 * @return the index of the cell (row * taille + column)
+	 */
+	public int cellOfOpen(int open) {
+		return this.distances.caseLibre(open);
+	}
+
+	/**
+	 * return the cell reached by a move from a given cell
+	 * @param cell index of the cell (row * taille + column)
+	 * @param d index of the direction of the move (see BeliefState.directionIndex)
+	 * @return the cell reached, -1 if the move leaves the grid
+	 */
+	int neighbour(int cell, int d) {
+		return this.neighbours[(cell << 2) | d];
+	}
+
+	/**
+	 * return the neighbours of all the cells (index cell * 4 + direction), the array must not be modified
+	 * @return the neighbours
+	 */
+	int[] getNeighbours() {
+		return this.neighbours;
+	}
+
+	/**
+	 * return the influence zones of the ghosts: the open cells at most GHOST_RANGE moves away from an open cell, and their distance
+	 * @return the influence zones, shared by all the games of the level
+	 */
+	public GhostInfluence getGhostInfluence() {
+		return this.ghostInfluence;
+	}
+
+	/**
+	 * return the table of the results of extendsBeliefState(String) computed in this level
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return this.transpositions;
+	}
+}
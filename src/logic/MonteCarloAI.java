@@ -0,0 +1,350 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+
+import view.Gomme;
+
+/**
+ * class implementing a Monte Carlo tree search of the next move of Pacman.
+ * Each iteration draws a concrete state from the belief states (one of the belief states, then one position per ghost),
+ * goes down the tree of the moves of Pacman (UCB1), adds a node and ends with a playout where the ghosts move at random
+ * as in the game. Several independent trees are searched at the same time (root parallelisation): their visit counts
+ * at the root are added up at the deadline and the most visited move is played.
+ */
+public class MonteCarloAI implements PacmanPolicy {
+	/** default time budget of a move (50 ms) */
+	public static final long DEFAULT_BUDGET = 50000000L;
+	/** number of moves of Pacman simulated from the root (in the tree and in the playout) */
+	private static final int HORIZON = 24;
+	/** exploration constant of UCB1 (the rewards are between 0 and 1) */
+	private static final double EXPLORATION = 0.7;
+	/** probability for Pacman to go toward the closest gum during a playout (otherwise the move is random) */
+	private static final double GREEDY = 0.6;
+	/** action of each direction index (see BeliefState.directionIndex) */
+	private static final String[] ACTIONS = {PacManLauncher.UP, PacManLauncher.DOWN, PacManLauncher.LEFT, PacManLauncher.RIGHT};
+	/** move of each direction index */
+	private static final int[] DELTA_ROW = {-1, 1, 0, 0};
+	private static final int[] DELTA_COLUMN = {0, 0, -1, 1};
+
+	/** time budget of a move, in nanoseconds */
+	private final long budget;
+	/** number of trees searched at each move */
+	private final int nbrOfTrees;
+	/** generator of the seeds of the trees */
+	private final SplittableRandom seeds;
+	/** number of iterations (all trees together) of the last move */
+	private long nbrOfSimulations;
+
+	/**
+	 * construct a search with the default time budget and one tree per processor
+	 * @param seed the seed of the random choices (drawn from the generator of the game)
+	 */
+	public MonteCarloAI(long seed) {
+		this(DEFAULT_BUDGET, Runtime.getRuntime().availableProcessors(), seed);
+	}
+
+	/**
+	 * construct a search whose random choices are given by a seed
+	 * @param budget the time budget of a move, in nanoseconds
+	 * @param nbrOfTrees the number of trees searched at the same time
+	 * @param seed the seed of the random choices
+	 */
+	public MonteCarloAI(long budget, int nbrOfTrees, long seed) {
+		this.budget = budget;
+		this.nbrOfTrees = Math.max(1, nbrOfTrees);
+		this.seeds = new SplittableRandom(seed);
+	}
+
+	/**
+	 * compute the next action of Pacman from a single belief state
+	 * @param beliefState the current belief state of the agent
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String findNextMove(BeliefState beliefState) {
+		ArrayList<BeliefState> beliefStates = new ArrayList<BeliefState>();
+		beliefStates.add(beliefState);
+		return this.findNextMove(beliefStates);
+	}
+
+	/**
+	 * compute the next action of Pacman within the time budget of the search
+	 * @param beliefStates the current belief states of the agent (Map.getVisibleBeliefState()), Pacman is at the same position in all of them
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String findNextMove(ArrayList<BeliefState> beliefStates) {
+		return this.decide(beliefStates, this.budget);
+	}
+
+	/**
+	 * compute the next action of Pacman: the trees are searched on the common ForkJoin pool until the time budget is spent
+	 * @param beliefStates the current belief states of the agent (Map.getVisibleBeliefState()), Pacman is at the same position in all of them
+	 * @param budget the time budget of the move, in nanoseconds
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	public String decide(ArrayList<BeliefState> beliefStates, long budget) {
+		BeliefState first = beliefStates.get(0);
+		if(first.getNbrOfGommes() == 0)
+			return null;
+		long deadline = System.nanoTime() + budget;
+		// copies propres a la recherche : les etats de l'appelant ne sont jamais modifies
+		ArrayList<BeliefState> roots = new ArrayList<BeliefState>(beliefStates.size());
+		for(BeliefState beliefState: beliefStates) {
+			BeliefState root = new BeliefState(beliefState, false);
+			root.distanceMinToGum();//le champ des gommes est construit une fois et partage par tous les tirages
+			roots.add(root);
+		}
+		ArrayList<ForkJoinTask<SearchTree>> tasks = new ArrayList<ForkJoinTask<SearchTree>>();
+		for(int t = 0; t < this.nbrOfTrees; t++) {
+			ArrayList<BeliefState> copies = new ArrayList<BeliefState>(roots.size());
+			for(BeliefState root: roots) {
+				copies.add(new BeliefState(root, false));//chaque arbre ne lit que ses propres copies
+			}
+			SearchTree tree = new SearchTree(copies, this.seeds.split());
+			tasks.add(ForkJoinTask.adapt(() -> tree.search(deadline)));
+		}
+		ForkJoinTask.invokeAll(tasks);
+		// somme des visites des fils de la racine de tous les arbres
+		long[] visits = new long[4];
+		double[] values = new double[4];
+		this.nbrOfSimulations = 0;
+		for(ForkJoinTask<SearchTree> task: tasks) {
+			SearchTree tree = task.join();
+			this.nbrOfSimulations += tree.nbrOfSimulations;
+			for(int d = 0; d < 4; d++) {
+				int child = tree.children[d];
+				if(child > 0) {
+					visits[d] += tree.visits[child];
+					values[d] += tree.values[child];
+				}
+			}
+		}
+		int best = -1;
+		for(int d = 0; d < 4; d++) {
+			if(visits[d] > 0 && (best < 0 || visits[d] > visits[best] || (visits[d] == visits[best] && values[d] > values[best])))
+				best = d;
+		}
+		if(best >= 0)
+			return ACTIONS[best];
+		for(int d = 0; d < 4; d++) {
+			if(first.canMove(d))
+				return ACTIONS[d];
+		}
+		return "STOP";
+	}
+
+	/**
+	 * return the number of iterations of the last move (all trees together)
+	 * @return the number of iterations
+	 */
+	public long getNbrOfSimulations() {
+		return this.nbrOfSimulations;
+	}
+
+	/**
+	 * test if a ghost which is not afraid is on a cell or next to it (distance in the maze of the level) in a concrete state
+	 * @param state the concrete state
+	 * @param row the row of the cell
+	 * @param column the column of the cell
+	 * @return true if Pacman would be caught on the cell by the next move of a ghost
+	 */
+	private static boolean isThreatened(BeliefState state, int row, int column) {
+		for(int k = 0; k < state.getNbrOfGhost(); k++) {
+			Position posG = state.getPGhost(k);
+			if(state.getCompteurPeur(k) == 0 && state.distance(posG.x, posG.y, row, column) <= 1)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * test if a simulation is over: Pacman has lost a life or all the gums are eaten
+	 * @param state the concrete state
+	 * @param startLife the number of lives at the root
+	 * @return true if the simulation is over
+	 */
+	private static boolean isOver(BeliefState state, int startLife) {
+		return state.getLife() < startLife || state.getNbrOfGommes() == 0;
+	}
+
+	/**
+	 * reward of a simulation, between 0 (Pacman has lost a life) and 1 (all the gums are eaten);
+	 * otherwise it grows with the points won and decreases with the distance to the closest gum
+	 * @param state the concrete state at the end of the simulation
+	 * @param startScore the score at the root
+	 * @param startLife the number of lives at the root
+	 * @return the reward
+	 */
+	private static double reward(BeliefState state, int startScore, int startLife) {
+		if(state.getLife() < startLife)
+			return 0;
+		if(state.getNbrOfGommes() == 0)
+			return 1;
+		double gain = state.getScore() - startScore;
+		int distance = state.distanceMinToGum();
+		if(distance != Integer.MAX_VALUE)
+			gain -= distance;
+		return 0.5 + 0.5 * Math.max(-1, Math.min(1, gain / (Gomme.SCORE_GOMME * HORIZON)));
+	}
+
+	/**
+	 * one tree of the search, used by a single thread. The tree is open loop: a node is a sequence of moves of Pacman,
+	 * the states reached by the sequence are drawn again at each iteration.
+	 */
+	private static final class SearchTree {
+		/** copies of the belief states at the root, each simulation modifies one of them and undoes its changes */
+		private final ArrayList<BeliefState> beliefStates;
+		private final SplittableRandom random;
+		/** child of each node in each direction (node * 4 + direction index), 0 if not expanded (node 0 is the root) */
+		private int[] children = new int[4 * 256];
+		/** number of visits and sum of the rewards of each node */
+		private int[] visits = new int[256];
+		private double[] values = new double[256];
+		private int nbrOfNodes = 1;
+		/** nodes visited by the current iteration */
+		private final int[] path = new int[HORIZON + 1];
+		/** number of iterations performed */
+		private long nbrOfSimulations;
+
+		/**
+		 * construct an empty tree
+		 * @param beliefStates copies of the belief states at the root
+		 * @param random the random generator of the tree
+		 */
+		SearchTree(ArrayList<BeliefState> beliefStates, SplittableRandom random) {
+			this.beliefStates = beliefStates;
+			this.random = random;
+		}
+
+		/**
+		 * perform iterations until a deadline (at least one)
+		 * @param deadline the date (System.nanoTime()) of the end of the search
+		 * @return this tree
+		 */
+		SearchTree search(long deadline) {
+			do {
+				this.iterate();
+				this.nbrOfSimulations++;
+			} while(System.nanoTime() < deadline);
+			return this;
+		}
+
+		/**
+		 * one iteration: draw a concrete state, go down the tree, add a node, perform the playout and update the visited nodes.
+		 * The simulation is played in place on one of the copies of the tree, which is given back by undo(int) at the end.
+		 */
+		private void iterate() {
+			BeliefState state = this.beliefStates.get(this.random.nextInt(this.beliefStates.size()));
+			int mark = state.mark();
+			state.drawGhostPositions(this.random);
+			int startScore = state.getScore(), startLife = state.getLife();
+			int node = 0, length = 0, depth = 0;
+			this.path[length++] = node;
+			// descente dans l'arbre jusqu'au premier noeud ajoute
+			while(depth < HORIZON && !MonteCarloAI.isOver(state, startLife)) {
+				int d = this.select(node, state);
+				if(d < 0)//aucun deplacement possible
+					break;
+				int child = this.children[node * 4 + d];
+				boolean isNew = child == 0;
+				if(isNew) {
+					child = this.newNode();
+					this.children[node * 4 + d] = child;
+				}
+				state.step(d, this.random);
+				depth++;
+				node = child;
+				this.path[length++] = node;
+				if(isNew)
+					break;
+			}
+			// fin de la simulation hors de l'arbre
+			while(depth < HORIZON && !MonteCarloAI.isOver(state, startLife)) {
+				int d = this.playoutMove(state);
+				if(d < 0)
+					break;
+				state.step(d, this.random);
+				depth++;
+			}
+			double reward = MonteCarloAI.reward(state, startScore, startLife);
+			state.undo(mark);
+			for(int i = 0; i < length; i++) {
+				this.visits[this.path[i]]++;
+				this.values[this.path[i]] += reward;
+			}
+		}
+
+		/**
+		 * choose the move of Pacman in a node: the first possible move not expanded yet, otherwise the move maximising UCB1
+		 * @param node the node
+		 * @param state the concrete state reached at the node
+		 * @return the index of the direction, -1 if Pacman can't move
+		 */
+		private int select(int node, BeliefState state) {
+			int best = -1;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			double logVisits = Math.log(Math.max(1, this.visits[node]));
+			for(int d = 0; d < 4; d++) {
+				if(state.canMove(d)) {
+					int child = this.children[node * 4 + d];
+					if(child == 0 || this.visits[child] == 0)
+						return d;
+					double value = this.values[child] / this.visits[child] + EXPLORATION * Math.sqrt(logVisits / this.visits[child]);
+					if(value > bestValue) {
+						bestValue = value;
+						best = d;
+					}
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * choose the move of Pacman during a playout: Pacman avoids the cells next to a ghost which is not afraid,
+		 * then goes toward the closest gum or moves at random (without turning back if possible)
+		 * @param state the concrete state
+		 * @return the index of the direction, -1 if Pacman can't move
+		 */
+		private int playoutMove(BeliefState state) {
+			Position pacman = state.getPacmanPos();
+			int back = BeliefState.directionIndex(pacman.dir) ^ 1;
+			int safe = 0, legal = 0;
+			for(int d = 0; d < 4; d++) {
+				if(state.canMove(d)) {
+					legal |= 1 << d;
+					if(!MonteCarloAI.isThreatened(state, pacman.x + DELTA_ROW[d], pacman.y + DELTA_COLUMN[d]))
+						safe |= 1 << d;
+				}
+			}
+			if(legal == 0)
+				return -1;
+			int moves = safe != 0 ? safe : legal;
+			if(this.random.nextDouble() < GREEDY) {
+				char dir = state.getDirectionToGum();
+				if(dir != 0 && (moves & (1 << BeliefState.directionIndex(dir))) != 0)
+					return BeliefState.directionIndex(dir);
+			}
+			if((moves & ~(1 << back)) != 0)
+				moves &= ~(1 << back);
+			for(int choice = this.random.nextInt(Integer.bitCount(moves)); choice > 0; choice--) {
+				moves &= moves - 1;
+			}
+			return Integer.numberOfTrailingZeros(moves);
+		}
+
+		/**
+		 * add a node to the tree
+		 * @return the index of the node
+		 */
+		private int newNode() {
+			if(this.nbrOfNodes == this.visits.length) {
+				this.visits = Arrays.copyOf(this.visits, this.nbrOfNodes * 2);
+				this.values = Arrays.copyOf(this.values, this.nbrOfNodes * 2);
+				this.children = Arrays.copyOf(this.children, this.nbrOfNodes * 8);
+			}
+			return this.nbrOfNodes++;
+		}
+	}
+}
@@ -8,14 +8,32 @@ public class PacManLauncher {
 	private data.Map maps;
 	private Pacman pacman;
 	private Ghost[] ghost;
+	/** policy choosing the moves of Pacman when the AI plays, and its name in the PolicyRegistry */
+	private PacmanPolicy policy;
+	private String policyName;
+	/** filtre qui borne le nombre d'etats visibles, null si tous les etats sont gardes */
+	private ParticleFilter particleFilter;
+	/** croyance factorisee (une distribution par fantome) qui remplace les etats visibles, null si elle n'est pas utilisee */
+	private FactoredBelief factoredBelief;
+	/** generateur de tous les tirages aleatoires de la partie (deplacements des fantomes, filtre a particules) */
+	private SplittableRandom random;
 	public static final String UP = "UP";
 	public static final String DOWN = "DOWN";
 	public static final String LEFT = "LEFT";
 	public static final String RIGHT = "RIGHT";
-	private static final int NBR_LVL = 3; // TODO : compter le nbr de fichier .map ??
+	static final int NBR_LVL = 3; // TODO : compter le nbr de fichier .map ??
 	private double meanTimeResolution;
 	private long nbrSamples;
 	private static long nbrMaxSample = 20000;
+	/** policy chosen on the command line and time given to each of its moves (in nanoseconds) */
+	private static String startPolicy = PolicyRegistry.DEFAULT;
+	private static long budget = 50000000L;
+	/** nombre maximal d'etats visibles choisi sur la ligne de commande, 0 pour garder tous les etats */
+	private static int nbrOfParticles = 0;
+	/** vrai si la croyance factorisee a ete choisie sur la ligne de commande */
+	private static boolean factored = false;
+	/** graine du generateur de la partie, choisie sur la ligne de commande pour rejouer une partie */
+	private static long seed = System.nanoTime();
 	
 	/**
 	 * initialize au lancement le jeu pacman
@@ -24,18 +42,45 @@ public class PacManLauncher {
 	 * les fantomes du niveau
 	 */
 	public PacManLauncher () {
+		this.random = new SplittableRandom(PacManLauncher.seed);
 		this.maps = new data.Map(1, this);
 		this.fillGhost();
 		this.pacman = new Pacman(this.maps.getTailleCase(), this.maps.getPMX(), this.maps.getPMY());
 		this.pacman.setMap(this.maps);
 		this.meanTimeResolution = 0;
 		this.nbrSamples = 0;
-		
+		this.setPolicy(PacManLauncher.startPolicy);
+		if(PacManLauncher.nbrOfParticles > 0)
+			this.particleFilter = new ParticleFilter(PacManLauncher.nbrOfParticles, this.random.nextLong());
+		if(PacManLauncher.factored)
+			this.factoredBelief = new FactoredBelief();
 	}
 
+	/**
+	 * lance le jeu
+	 * @param args [nom de la politique de Pacman] [temps donne a chaque coup en ms] [nombre maximal d'etats visibles, 0 pour tous, ou "factored" pour la croyance factorisee] [graine des tirages aleatoires]
+	 */
 	public static void main (String[] args) {
+		if(args.length > 0) {
+			if(PolicyRegistry.contains(args[0]))
+				PacManLauncher.startPolicy = args[0];
+			else
+				System.out.println("unknown policy " + args[0] + ", available: " + PolicyRegistry.getNames());
+		}
+		if(args.length > 1)
+			PacManLauncher.budget = Long.parseLong(args[1]) * 1000000L;
+		if(args.length > 2) {
+			if(args[2].equals("factored"))
+				PacManLauncher.factored = true;
+			else
+				PacManLauncher.nbrOfParticles = Integer.parseInt(args[2]);
+		}
+		if(args.length > 3)
+			PacManLauncher.seed = Long.parseLong(args[3]);
+		System.out.println("seed: " + PacManLauncher.seed);
 		//Canvas c = Canvas.getCanvas();
 		PacManLauncher pml = new PacManLauncher();
+		Canvas.getCanvas().setPolicies(PolicyRegistry.getNames(), pml.policyName);
 		pml.draw();
 		pml.animate(); // Le lvl 1
 
@@ -53,10 +98,20 @@ public class PacManLauncher {
 		if ((Integer.valueOf(Score.getScore()) < pml.getPacman().getScore()) && (pml.nbrSamples < PacManLauncher.nbrMaxSample)) {
 			Score.setScore(pml.getPacman().getScore()+"");
 		}
-		System.out.println("mean time resolution:" + pml.meanTimeResolution + "ms\nnbr of actions: " + pml.nbrSamples);
+		System.out.println("policy: " + pml.policyName + "\nmean time resolution:" + pml.meanTimeResolution + "ms\nnbr of actions: " + pml.nbrSamples);
 		System.out.println("~~~END~~~");
 	}
 
+	/**
+	 * change la politique qui choisit les deplacements de Pacman (un nouvel objet de la politique est cree pour la partie,
+	 * sa graine est tiree du generateur de la partie)
+	 * @param name le nom de la politique dans le PolicyRegistry
+	 */
+	public void setPolicy (String name) {
+		this.policy = PolicyRegistry.create(name, this.random.nextLong());
+		this.policyName = name;
+	}
+
 	/**
 	 * change la map en prenant le niveau passe en parametre
 	 * @param int lvl le niveau souhaité
@@ -65,7 +120,6 @@ public class PacManLauncher {
 		this.maps = new data.Map(lvl, this);
 		this.fillGhost();
 		this.pacman.setLocation(this.maps.getPMX(), this.maps.getPMY());
-		this.pacman.setCount(0);
 		this.pacman.setMap(this.maps);
 	}
 
@@ -107,6 +161,22 @@ public class PacManLauncher {
 		}
 	}
 
+	/**
+	 * retourne le filtre qui borne le nombre d'etats visibles
+	 * @return le filtre, null si tous les etats sont gardes
+	 */
+	public ParticleFilter getParticleFilter () {
+		return this.particleFilter;
+	}
+
+	/**
+	 * retourne la croyance factorisee qui remplace les etats visibles
+	 * @return la croyance, null si elle n'est pas utilisee
+	 */
+	public FactoredBelief getFactoredBelief () {
+		return this.factoredBelief;
+	}
+
 	/**
 	 * retourne le pacman de la partie
 	 * @return le pacman de la partie
@@ -115,6 +185,14 @@ public class PacManLauncher {
 		return this.pacman;
 	}
 
+	/**
+	 * retourne le score auquel Pacman gagnera sa prochaine vie, garde d'un niveau a l'autre
+	 * @return le prochain palier, Pacman.PALIER avant le premier niveau
+	 */
+	public int getPalier () {
+		return this.maps != null ? this.maps.getBeliefState().getPalier() : Pacman.PALIER;
+	}
+
 	/**
 	 * lance le deroulement du jeu
 	 * en regardant la touche utiliser par l'utilisateur pour deplacer pacman
@@ -125,8 +203,6 @@ public class PacManLauncher {
 	public void animate () {
 		Canvas c = Canvas.getCanvas();
 		c.resetMove();
-		boolean isInit = false;
-		boolean[] isDead = new boolean[this.ghost.length];
 		while ((this.maps.getNbGom() > 0) && (this.pacman.getLife() > 0) && (this.nbrSamples < PacManLauncher.nbrMaxSample)) {
 			/*System.out.println(this.maps.getState().toString());
 			System.out.println("Actual position: P(" + this.pacman.getY() / this.maps.getTailleCase()  + ", " + this.getPacman().getX() / this.maps.getTailleCase() + ") " + this.getPacman().getScore());
@@ -167,75 +243,159 @@ public class PacManLauncher {
 				System.out.println("Problem");
 			if(this.maps.getState().getNbrOfSuperGommes() != this.maps.getVisibleState().getFirst().getNbrOfSuperGommes())
 				System.out.println("Problem");*/
+			String action;
 			if(Canvas.getCanvas().isAIdriven()) {//c'est l'IA qui joue
 				long elapsedTime = System.currentTimeMillis();
-				if(this.maps.getVisibleBeliefState().size() != 1) {
-					System.out.println("Problem");
+				if(c.getSelectedPolicy() != null && !c.getSelectedPolicy().equals(this.policyName)) {//une autre politique a ete choisie dans le menu
+					this.setPolicy(c.getSelectedPolicy());
 				}
-				isInit = this.pacman.move(AI.findNextMove(this.maps.getVisibleBeliefState().get(0)));//l'IA choisit un mouvement est Pacman commence a se deplacer
+				action = this.policy.decide(this.maps.getVisibleBeliefState(), PacManLauncher.budget);//l'IA choisit un mouvement
 				elapsedTime = System.currentTimeMillis() - elapsedTime;
 				this.nbrSamples++;
 				this.meanTimeResolution = ((double)elapsedTime) / this.nbrSamples + (((double)(this.nbrSamples - 1)) / this.nbrSamples) * this.meanTimeResolution;
 			}
 			else {
 				if (c.isUpPressed()) {
-					isInit = this.pacman.move(PacManLauncher.UP);
+					action = PacManLauncher.UP;
 				} else if (c.isDownPressed()) {
-					isInit = this.pacman.move(PacManLauncher.DOWN);
+					action = PacManLauncher.DOWN;
 				} else if (c.isLeftPressed()) {
-					isInit = this.pacman.move(PacManLauncher.LEFT);
+					action = PacManLauncher.LEFT;
 				} else if (c.isRightPressed()) {
-					isInit = this.pacman.move(PacManLauncher.RIGHT);
+					action = PacManLauncher.RIGHT;
 				} else {
-					isInit = this.pacman.move(this.pacman.getPreviousMove());
+					action = this.pacman.getPreviousMove();
 				}
 			}
-			if(isInit) {
-				boolean colisionSolved = false;
-				for (Ghost g : this.ghost) {
-					if(!colisionSolved)
-						colisionSolved = g.move(true) == 1;
-					else
-						g.move(false);
-				}
+			this.tick(action);
+		}
+	}
+
+	/**
+	 * joue un tour du jeu sur la grille logique (comme HeadlessGame) : Pacman avance d'une case puis chaque fantome (BeliefState.step),
+	 * les etats visibles sont mis a jour, puis l'affichage suit le nouvel etat du jeu (render)
+	 * @param action le mouvement choisi pour Pacman, "STOP" ou null pour garder sa direction
+	 */
+	private void tick (String action) {
+		BeliefState state = this.maps.getBeliefState();
+		if(action == null || action.equals("STOP"))//aucune action possible : Pacman garde sa direction
+			action = this.pacman.getPreviousMove();
+		int d = BeliefState.directionIndex(action.charAt(0));
+		Position target = state.nextPacmanPosition(d);//null si Pacman est bloque par un mur
+		int life = state.getLife();
+		ArrayList<BeliefState> visibleBeliefState = this.predict(this.maps.getVisibleBeliefState(), action);
+		int eaten = state.step(d, this.random);
+		this.maps.setVisibleBeliefState(visibleBeliefState);
+		this.observe();
+		boolean[] isDead = new boolean[this.ghost.length];
+		for(int k = 0; k < isDead.length; k++) {
+			isDead[k] = (eaten & (1 << k)) != 0;
+		}
+		this.render(action, target, state.getLife() < life, isDead);
+	}
+
+	/**
+	 * calcule les etats visibles apres un deplacement de Pacman : tous les successeurs de tous les etats,
+	 * ou au plus un nombre borne d'etats si le jeu utilise un filtre a particules,
+	 * ou un seul etat si le jeu utilise la croyance factorisee
+	 * @param visibleBeliefState les etats visibles avant le deplacement
+	 * @param toward la direction de Pacman
+	 * @return les etats visibles apres le deplacement
+	 */
+	private ArrayList<BeliefState> predict (ArrayList<BeliefState> visibleBeliefState, String toward) {
+		if(this.factoredBelief != null)
+			return this.factoredBelief.predict(visibleBeliefState, toward);
+		if(this.particleFilter != null)
+			return this.particleFilter.predict(visibleBeliefState, toward);
+		ArrayList<BeliefState> newVisibleBeliefState = new ArrayList<BeliefState>();
+		for(BeliefState state: visibleBeliefState) {
+			newVisibleBeliefState.addAll(state.extendsBeliefState(toward).getBeliefStates());
+		}
+		return newVisibleBeliefState;
+	}
+
+	/**
+	 * garde les etats visibles compatibles avec la position des fantomes apres leur deplacement
+	 */
+	private void observe () {
+		if(this.factoredBelief != null) {
+			this.factoredBelief.observe(this.maps.getVisibleBeliefState(), this.maps.getBeliefState());
+		}
+		else {
+			for(int i = 0; i < this.ghost.length; i++) {
+				if(this.particleFilter != null)
+					this.particleFilter.observe(this.maps.getVisibleBeliefState(), i, this.maps.getBeliefState().getPGhost(i));
+				else
+					BeliefState.filter(this.maps.getVisibleBeliefState(), i, this.maps.getBeliefState().getPGhost(i));
 			}
-			else{
-				if (this.pacman.getPMSupra()) {
-					for (Ghost g : this.ghost) {
-						g.setEtatPeur();
-					}
-					this.pacman.resetSupra();
-				}
-				int ghostIndex = 0;
-				for (Ghost g : this.ghost) {
-					if(!isInit) {
-						int result = g.move(true);
-						if(result == 1)
-							isInit = true;
-						else {
-							isDead[ghostIndex++] = result == -1;
-								
-						}
-					}
-					else {
-						g.move(false);
-					}
-				}
+		}
+	}
+
+	/**
+	 * met l'affichage a jour apres un tour du jeu : gomme mangee, peur, mort de Pacman ou des fantomes et fantomes visibles,
+	 * puis fait glisser Pacman et les fantomes vers leur nouvelle case en tailleCase / SPEED_PACMAN images.
+	 * C'est le seul calcul en pixels, le jeu lui-meme avance d'une case par tour
+	 * @param action la direction de Pacman
+	 * @param target la case ou Pacman est alle, null s'il n'a pas bouge
+	 * @param isInit vrai si Pacman a perdu une vie pendant le tour
+	 * @param isDead les fantomes manges pendant le tour
+	 */
+	private void render (String action, Position target, boolean isInit, boolean[] isDead) {
+		BeliefState state = this.maps.getBeliefState();
+		int tailleCase = this.maps.getTailleCase();
+		if(target != null) {
+			this.pacman.actionWithGom(this.maps.getMap(), target.x, target.y);//la gomme de la case a ete mangee par le jeu
+		}
+		if (this.pacman.getPMSupra()) {
+			for (Ghost g : this.ghost) {
+				g.setEtatPeur();
 			}
-			Canvas.getCanvas().redraw(this.pacman.getScore(), this.pacman.getLife(), Score.getScore());
-			while(this.getPacman().getX() % this.maps.getTailleCase() != 0 || this.getPacman().getY() % this.maps.getTailleCase() != 0 || this.getPacman().getCount() % (this.maps.getTailleCase() / Pacman.SPEED_PACMAN) != 0) {
-				this.pacman.move(this.pacman.getPreviousMove());
-				for (Ghost g : this.ghost) {
-					g.move(false);
-				}
-				Canvas.getCanvas().redraw(this.pacman.getScore(), this.pacman.getLife(), Score.getScore());
+			this.pacman.resetSupra();
+		}
+		this.collisionGhost(isInit, isDead);
+		this.pacman.setLife(state.getLife());//vie perdue ou gagnee au palier pendant le tour
+		Position pacmanPos = state.getPacmanPosition();
+		for (int k = 0; k < this.ghost.length; k++) {
+			Position posG = state.getPGhost(k);
+			if (state.getCompteurPeur(k) == 0 && this.ghost[k].getPeur() > 0) {
+				this.ghost[k].setEtatNormal();
 			}
-			this.collisionGhost(isInit, isDead);
-			
-			for(int i = 0; i < this.ghost.length; i++) {
-				BeliefState.filter(this.maps.getVisibleBeliefState(), i, this.maps.getBeliefState().getPGhost(i));
+			this.ghost[k].setVisible(state.isVisible(posG.x, posG.y, pacmanPos.x, pacmanPos.y));
+		}
+
+		// deplacement de chaque entite en pixels : une case voisine est animee, sinon l'entite est posee sur sa case
+		Entite[] entites = new Entite[this.ghost.length + 1];
+		int[][] cases = new int[entites.length][];
+		entites[0] = this.pacman;
+		cases[0] = new int[] {pacmanPos.y * tailleCase, pacmanPos.x * tailleCase};
+		for (int k = 0; k < this.ghost.length; k++) {
+			Position posG = state.getPGhost(k);
+			entites[k + 1] = this.ghost[k];
+			cases[k + 1] = new int[] {posG.y * tailleCase, posG.x * tailleCase};
+		}
+		int images = Math.max(1, tailleCase / Pacman.SPEED_PACMAN);
+		int[][] pas = new int[entites.length][2];
+		for (int k = 0; k < entites.length; k++) {
+			int dx = cases[k][0] - entites[k].getX(), dy = cases[k][1] - entites[k].getY();
+			if (Math.abs(dx) + Math.abs(dy) == tailleCase) {
+				pas[k][0] = dx / images;
+				pas[k][1] = dy / images;
 			}
-			
+			else {
+				entites[k].setLocation(cases[k][0], cases[k][1]);
+			}
+		}
+		for (int image = 0; image < images; image++) {
+			if (target != null && !isInit) {
+				this.pacman.turn(action);
+			}
+			for (int k = 0; k < entites.length; k++) {
+				entites[k].move(pas[k][0], pas[k][1]);
+			}
+			Canvas.getCanvas().redraw(this.pacman.getScore(), this.pacman.getLife(), Score.getScore());
+		}
+		for (int k = 0; k < entites.length; k++) {
+			entites[k].setLocation(cases[k][0], cases[k][1]);
 		}
 	}
 
@@ -262,7 +422,6 @@ public class PacManLauncher {
 		for(int i = 0; i < isDead.length; i++) {
 			if(isDead[i]) {
 				this.ghost[i].setLocation(gs.get(i)[0], gs.get(i)[1]);
-				this.ghost[i].setPreviousMove(PacManLauncher.UP);
 				this.ghost[i].setEtatNormal();
 				this.pacman.upScoreFantomme();
 			}
@@ -1,6 +1,4 @@
 package logic;
-import java.util.ArrayList;
-
 //import data.*;
 import view.*;
 
@@ -31,9 +29,6 @@ public class Pacman extends Entite {
 	private String previousMove;//Le dernier mouvement de pacman
 	private int life;// the pacman life
 	private int score;// the pacman score
-	private int palier;//prochain palier pour gagner une vie
-	private int count;
-	private boolean isMoving;
 
 	/**
 	 * Create a new Figure_Pacman.
@@ -53,9 +48,6 @@ public class Pacman extends Entite {
 		this.life = Pacman.LIFE_START;
 		this.supra = false;
 		this.previousMove = PacManLauncher.LEFT;
-		this.palier = Pacman.PALIER;
-		this.count = 0;
-		this.isMoving = false;
 	}
 
 	/**
@@ -64,7 +56,6 @@ public class Pacman extends Entite {
 	 * @return if one life carry off
 	 */
 	public boolean carryOff () {
-		this.count = 0;
 		if (this.life > 0) {
 			this.life -= 1;
 			return true;
@@ -79,15 +70,19 @@ public class Pacman extends Entite {
 	public int getLife () {
 		return this.life;
 	}
+	/**
+	 * Set the pacman life (the lifes won at each palier are counted by the state of the game)
+	 *
+	 * @param life the pacman life
+	 */
+	public void setLife (int life) {
+		this.life = life;
+	}
 	/**
 	 * up the score to this.SCORE_Gomme.
 	 */
 	public void upScoreGomme () {
 		this.score += Gomme.SCORE_GOMME;
-		if (this.score >= this.palier) {
-			this.life++;
-			this.palier += Pacman.PALIER;
-		}
 	}
 	/**
 	 * up the score to this.SCORE_Gomme.
@@ -144,93 +139,15 @@ public class Pacman extends Entite {
 	}
 
 	/**
-	 * move the pacman and all figures which blend him
-	 * @param toward la direction vers laquelle pacman devrait aller
+	 * oriente pacman dans la direction de son deplacement et anime sa bouche (une image de l'animation entre deux cases)
+	 * @param toward la direction de pacman
+	 * @pre toward.equals("UP") || toward.equals("DOWN") || toward.equals("LEFT") || toward.equals("RIGHT")
 	 */
-	public boolean move (String toward) {
-		int dx = 0;
-		int dy = 0;
-		
-		boolean toInit = false;
-		
-		if(this.getX() % this.map.getTailleCase() == 0 && this.getY() % this.map.getTailleCase() == 0 && (count % (this.map.getTailleCase() / Pacman.SPEED_PACMAN) == 0)) {//si Pacman commence un mouvement
-			this.isMoving = this.testMove(toward);
-			ArrayList<BeliefState> visibleBeliefState = this.map.getVisibleBeliefState(), newVisibleBeliefState = new ArrayList<BeliefState>();
-			switch(toward){
-			case PacManLauncher.UP: toInit = this.map.getBeliefState().move(-1, 0, 'U'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.UP).getBeliefStates());} break;
-			case PacManLauncher.DOWN: toInit = this.map.getBeliefState().move(1, 0, 'D'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.DOWN).getBeliefStates());} break;
-			case PacManLauncher.LEFT: toInit = this.map.getBeliefState().move(0, -1, 'L'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.LEFT).getBeliefStates());} break;
-			case PacManLauncher.RIGHT: toInit = this.map.getBeliefState().move(0, 1, 'R'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.RIGHT).getBeliefStates());} break;
-			}
-			this.map.setVisibleBeliefState(newVisibleBeliefState);
-		}
-		count++;
-		if(this.isMoving) {
-			this.previousMove = toward;
-			int[] crossMap = this.crossMap(this.previousMove);
-			dx = crossMap[0];
-			dy = crossMap[1];
-
-			crossMap = this.checkColision(this.previousMove, dx, dy);
-			dx = crossMap[0];
-			dy = crossMap[1];
-
-			this.deplaceOuverture(this.previousMove);
-			this.animateMouth();
-			this.move(dx, dy);//move the pacman
-
-		}
-					
+	public void turn (String toward) {
+		this.previousMove = toward;
+		this.deplaceOuverture(toward);
+		this.animateMouth();
 		this.invariant();
-		return toInit;
-	}
-
-	/**
-	 * verifie si un deplacement est possible
-	 * @param  String toward la direction vers laquelle pacman devrait aller
-	 * @return vrai si le deplacement est possible
-	 */
-	private boolean testMove (String toward) {
-		boolean haveMoved = false;
-		Figure[][] map = this.map.getMap();
-		
-		int[] colLign = this.getColLign();
-		int colonne = colLign[0];
-		int ligne = colLign[1];
-
-		
-		switch (toward) {
-		case PacManLauncher.UP :
-			Figure fup = map[ligne-1][colonne];
-			if (fup.getClass().getName().compareTo("view.Wall") != 0) {
-				haveMoved = true;
-			} else {
-			}
-			break;
-		case PacManLauncher.DOWN :
-			Figure fdown = map[ligne+1][colonne];
-			if (fdown.getClass().getName().compareTo("view.Wall") != 0) {
-				haveMoved = true;
-			} else {
-			}
-			break;
-		case PacManLauncher.LEFT :
-			Figure fleft = map[ligne][colonne-1];
-			if (fleft.getClass().getName().compareTo("view.Wall") != 0) {
-				haveMoved = true;
-			} else {
-			}
-			break;
-		case PacManLauncher.RIGHT :
-			Figure fright = map[ligne][colonne+1];
-			if (fright.getClass().getName().compareTo("view.Wall") != 0) {
-				haveMoved = true;
-			} else {
-			}
-			break;
-		}
-
-		return haveMoved;
 	}
 
 	/**
@@ -309,13 +226,6 @@ public class Pacman extends Entite {
 	}
 
 
-	/**
-	 *	pacman peut agir sur les mur et les gommes
-	 */
-	public boolean typeCaseToCheck (Figure f) {
-		return (f instanceof Wall) || (f instanceof Gomme);
-	}
-
 	/**
 	 *	animation of the mouth of pacman
 	 */
@@ -372,13 +282,5 @@ public class Pacman extends Entite {
 	public String getPreviousMove() {
 		return this.previousMove;
 	}
-	
-	public int getCount() {
-		return this.count;
-	}
-	
-	public void setCount(int val) {
-		this.count = val;
-	}
 
 }
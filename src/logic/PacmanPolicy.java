@@ -0,0 +1,18 @@
+package logic;
+
+import java.util.ArrayList;
+
+/**
+ * interface of the policies choosing the next move of Pacman.
+ * A policy object is used by a single game: it may keep information from one move to the next,
+ * but never shares it with the other games (several games can be played at the same time with different policies).
+ */
+public interface PacmanPolicy {
+	/**
+	 * choose the next move of Pacman
+	 * @param beliefStates the current belief states of the agent (Map.getVisibleBeliefState())
+	 * @param budget the time the policy may spend on the move, in nanoseconds (a policy may use less)
+	 * @return the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT), null if there is no more gum, "STOP" if no action is possible
+	 */
+	String decide(ArrayList<BeliefState> beliefStates, long budget);
+}
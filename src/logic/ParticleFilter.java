@@ -0,0 +1,156 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * bounded version of the visible belief states: at most a given number of weighted belief states (particles).
+ * After a move of Pacman the weight of a particle is shared equally among its successors (equal successors are merged);
+ * if there are too many of them, the particles are drawn again in proportion to their weights (systematic resampling).
+ * The observation of a ghost multiplies the weight of each particle by the probability of the observed position
+ * (0 if the ghost can't be there, 1 / number of possible positions otherwise).
+ */
+public class ParticleFilter {
+	/** maximal number of particles */
+	private final int capacity;
+	private final SplittableRandom random;
+	/** particles returned by the last update, and their weights (sum 1) */
+	private ArrayList<BeliefState> particles;
+	private double[] weights;
+
+	/**
+	 * construct a filter
+	 * @param capacity the maximal number of particles
+	 * @param seed the seed of the resampling
+	 */
+	public ParticleFilter(int capacity, long seed) {
+		this.capacity = Math.max(1, capacity);
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * compute the particles after a move of Pacman
+	 * @param beliefStates the current particles (a list not returned by this filter, like the belief state of a new level, gets uniform weights)
+	 * @param toward the move of Pacman (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 * @return the new particles, at most capacity of them
+	 */
+	public ArrayList<BeliefState> predict(ArrayList<BeliefState> beliefStates, String toward) {
+		this.adopt(beliefStates);
+		ArrayList<BeliefState> successors = new ArrayList<BeliefState>();
+		double[] successorWeights = new double[16];
+		HashMap<BeliefState, Integer> index = new HashMap<BeliefState, Integer>();
+		for(int i = 0; i < beliefStates.size(); i++) {
+			List<BeliefState> result = beliefStates.get(i).extendsBeliefState(toward).getBeliefStates();
+			for(BeliefState successor: result) {
+				Integer j = index.get(successor);
+				if(j == null) {//nouvel etat : ajoute a la liste
+					j = successors.size();
+					index.put(successor, j);
+					successors.add(successor);
+					if(j == successorWeights.length)
+						successorWeights = Arrays.copyOf(successorWeights, j * 2);
+				}
+				successorWeights[j] += this.weights[i] / result.size();
+			}
+		}
+		this.particles = successors;
+		this.weights = Arrays.copyOf(successorWeights, successors.size());
+		if(successors.size() > this.capacity)
+			this.resample();
+		return this.particles;
+	}
+
+	/**
+	 * update the weights of the particles with the observed position of a ghost; the particles where the ghost
+	 * can't be at this position are removed (unless none is left, then the particles are kept unchanged)
+	 * @param beliefStates the current particles, modified in place
+	 * @param gId Id of the ghost
+	 * @param posG the observed position of the ghost
+	 */
+	public void observe(ArrayList<BeliefState> beliefStates, int gId, Position posG) {
+		this.adopt(beliefStates);
+		double[] likelihoods = new double[beliefStates.size()];
+		double sum = 0;
+		for(int i = 0; i < beliefStates.size(); i++) {
+			PositionSet positions = beliefStates.get(i).getGhostPositions(gId);
+			if(positions.contains(posG))
+				likelihoods[i] = this.weights[i] / positions.size();
+			sum += likelihoods[i];
+		}
+		if(sum == 0)
+			return;
+		int size = 0;
+		for(int i = 0; i < beliefStates.size(); i++) {
+			if(likelihoods[i] > 0) {
+				beliefStates.set(size, beliefStates.get(i));
+				this.weights[size++] = likelihoods[i] / sum;
+			}
+		}
+		beliefStates.subList(size, beliefStates.size()).clear();
+		this.weights = Arrays.copyOf(this.weights, size);
+	}
+
+	/**
+	 * return the weight of one of the particles returned by the last update
+	 * @param i index of the particle
+	 * @return its weight
+	 */
+	public double getWeight(int i) {
+		return this.weights[i];
+	}
+
+	/**
+	 * return the maximal number of particles
+	 * @return the capacity of the filter
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * give uniform weights to a list of particles which has not been returned by this filter
+	 * @param beliefStates the particles
+	 */
+	private void adopt(ArrayList<BeliefState> beliefStates) {
+		if(this.particles != beliefStates || this.weights.length != beliefStates.size()) {
+			this.particles = beliefStates;
+			this.weights = new double[beliefStates.size()];
+			Arrays.fill(this.weights, 1.0 / beliefStates.size());
+		}
+	}
+
+	/**
+	 * draw capacity particles in proportion to the weights (systematic resampling); the particles drawn several times
+	 * are kept once, with a weight proportional to their number of draws
+	 */
+	private void resample() {
+		ArrayList<BeliefState> drawn = new ArrayList<BeliefState>(this.capacity);
+		double[] drawnWeights = new double[this.capacity];
+		double total = 0;
+		for(double weight: this.weights) {
+			total += weight;
+		}
+		double step = total / this.capacity, target = this.random.nextDouble() * step, cumulated = 0;
+		for(int i = 0, n = 0; i < this.particles.size() && n < this.capacity; i++) {
+			cumulated += this.weights[i];
+			boolean kept = false;
+			while(target < cumulated && n < this.capacity) {
+				if(!kept) {
+					drawn.add(this.particles.get(i));
+					kept = true;
+				}
+				drawnWeights[drawn.size() - 1] += step;
+				target += step;
+				n++;
+			}
+		}
+		this.particles = drawn;
+		this.weights = Arrays.copyOf(drawnWeights, drawn.size());
+		for(int i = 0; i < this.weights.length; i++) {
+			this.weights[i] /= total;
+		}
+	}
+}
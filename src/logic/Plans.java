@@ -0,0 +1,63 @@
+package logic;
+
+import java.util.ArrayList;
+
+/**
+ * class used to represent plan. It will provide for a given set of results an
+ * action to perform in each result
+ */
+class Plans {
+	ArrayList<Result> results;
+	ArrayList<ArrayList<String>> actions;
+
+	/**
+	 * construct an empty plan
+	 */
+	public Plans() {
+		this.results = new ArrayList<Result>();
+		this.actions = new ArrayList<ArrayList<String>>();
+	}
+
+	/**
+	 * add a new pair of belief-state and corresponding (equivalent) actions
+	 *
+	 * @param beliefBeliefState the belief state to add
+	 * @param action            a list of alternative actions to perform. Only one
+	 *                          of them is chosen but their results should be
+	 *                          similar
+	 */
+	public void addPlan(Result beliefBeliefState, ArrayList<String> action) {
+		this.results.add(beliefBeliefState);
+		this.actions.add(action);
+	}
+
+	/**
+	 * return the number of belief-states/actions pairs
+	 *
+	 * @return the number of belief-states/actions pairs
+	 */
+	public int size() {
+		return this.results.size();
+	}
+
+	/**
+	 * return one of the belief-state of the plan
+	 *
+	 * @param index index of the belief-state
+	 * @return the belief-state corresponding to the index
+	 */
+	public Result getResult(int index) {
+		return this.results.get(index);
+	}
+
+	/**
+	 * return the list of actions performed for a given belief-state
+	 *
+	 * @param index index of the belief-state
+	 * @return the set of actions to perform for the belief-state corresponding to
+	 *         the index
+	 */
+	public ArrayList<String> getAction(int index) {
+		return this.actions.get(index);
+	}
+}
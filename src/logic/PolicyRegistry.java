@@ -0,0 +1,66 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * registry of the policies of Pacman, by name. Each call to create(String, long) builds a new policy object,
+ * so that each game has its own. The seed given to the factory is drawn from the generator of the game,
+ * so that a policy making random choices is replayed with the game.
+ */
+public final class PolicyRegistry {
+	/** name of the policy used when none is chosen */
+	public static final String DEFAULT = "risk";
+	/** factory of each policy, in the order of registration */
+	private static final LinkedHashMap<String, LongFunction<PacmanPolicy>> policies = new LinkedHashMap<String, LongFunction<PacmanPolicy>>();
+
+	static {
+		PolicyRegistry.register(DEFAULT, seed -> new AI());
+		PolicyRegistry.register("expectimax", seed -> new ExpectimaxAI());
+		PolicyRegistry.register("mcts", MonteCarloAI::new);
+	}
+
+	private PolicyRegistry() {
+	}
+
+	/**
+	 * add a policy to the registry (or replace the policy of the same name)
+	 * @param name the name of the policy
+	 * @param factory builds a new object of the policy for each game from a seed
+	 */
+	public static synchronized void register(String name, LongFunction<PacmanPolicy> factory) {
+		PolicyRegistry.policies.put(name, factory);
+	}
+
+	/**
+	 * build a new object of a policy
+	 * @param name the name of the policy
+	 * @param seed the seed of the random choices of the policy
+	 * @return the policy
+	 * @throws IllegalArgumentException if no policy has this name
+	 */
+	public static synchronized PacmanPolicy create(String name, long seed) {
+		LongFunction<PacmanPolicy> factory = PolicyRegistry.policies.get(name);
+		if(factory == null)
+			throw new IllegalArgumentException("unknown policy " + name + ", available: " + PolicyRegistry.policies.keySet());
+		return factory.apply(seed);
+	}
+
+	/**
+	 * test if a policy has been registered
+	 * @param name the name of the policy
+	 * @return true if the policy can be created
+	 */
+	public static synchronized boolean contains(String name) {
+		return PolicyRegistry.policies.containsKey(name);
+	}
+
+	/**
+	 * return the names of the policies
+	 * @return the names, in the order of registration
+	 */
+	public static synchronized ArrayList<String> getNames() {
+		return new ArrayList<String>(PolicyRegistry.policies.keySet());
+	}
+}
@@ -0,0 +1,75 @@
+package logic;
+
+/**
+ * an object Position correspond to a position in the Pacman grid
+ */
+class Position implements Comparable<Position>{
+	public int x, y;
+	public char dir;
+
+	/**
+	 * construct a new Object position corresponding to the position of an entity (ghost or pacman) in the grid
+	 * @param x row
+	 * @param y column
+	 * @param dir direction followed by the entity
+	 */
+	public Position(int x, int y, char dir) {
+		this.x = x;
+		this.y = y;
+		this.dir = dir;
+	}
+	
+	/**
+	 * return the row index
+	 * @return the row index
+	 */
+	int getRow() {
+		return this.x;
+	}
+	
+	/**
+	 * return the column index
+	 * @return the column index
+	 */
+	int getColumn() {
+		return this.y;
+	}
+	
+	/**
+	 * return direction (among 'U', 'D', 'L', 'R')
+	 * @return
+	 */
+	char getDirection() {
+		return this.dir;
+	}
+
+	public String toString() {
+		return "(" + this.x + "," + this.y + ") " + this.dir;
+	}
+
+	/**
+	 * construct a copie of a given position
+	 * @param pos
+	 */
+	public Position clone() {
+		return new Position(this.x, this.y, this.dir);
+	}
+	
+	
+	/**
+	 * used to compare two positions
+	 * @return 0 if the two positions are the same
+	 */
+	public int compareTo(Position pos) {
+		int comp = this.x - pos.x;
+		if(comp != 0)
+			return comp;
+		comp = this.y - pos.y;
+		if(comp != 0)
+			return comp;
+		comp = this.dir - pos.dir;
+		if(comp != 0)
+			return comp;
+		return 0; 
+	}
+}
@@ -0,0 +1,195 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * a set of positions (cell and direction) of the grid, stored as a bitset with one bit per open cell (not a wall) and per direction.
+ * The position (x, y, dir) corresponds to the bit level.openCell(x * taille + y) * 4 + index of dir in "DLRU";
+ * the open cells are numbered in the order of the cells, so the positions are iterated in the same order as in a TreeSet of Position.
+ */
+class PositionSet implements Iterable<Position> {
+	private static final String DIRECTIONS = "DLRU";
+	/** level of the positions, giving the index of each open cell */
+	private final LevelContext level;
+	private final int taille;
+	private final long[] words;
+
+	/**
+	 * construct an empty set
+	 * @param level the level of the positions
+	 */
+	public PositionSet(LevelContext level) {
+		this.level = level;
+		this.taille = level.getTaille();
+		this.words = new long[BitBoard.words(level.getNbrOfOpenCells() * 4)];
+	}
+
+	/**
+	 * construct a copy of a set
+	 * @param toCopy the set to copy
+	 */
+	public PositionSet(PositionSet toCopy) {
+		this.level = toCopy.level;
+		this.taille = toCopy.taille;
+		this.words = toCopy.words.clone();
+	}
+
+	/**
+	 * return the index of the bit corresponding to a position
+	 * @param pos the position
+	 * @return the index of the bit, negative if the position is on a wall
+	 */
+	int index(Position pos) {
+		return this.level.openCell(pos.x * this.taille + pos.y) * 4 + DIRECTIONS.indexOf(pos.dir);
+	}
+
+	/**
+	 * return the position corresponding to a bit
+	 * @param index the index of the bit
+	 * @return the position
+	 */
+	Position position(int index) {
+		int cell = this.level.cellOfOpen(PositionSet.openCell(index));
+		return new Position(cell / this.taille, cell % this.taille, DIRECTIONS.charAt(index & 3));
+	}
+
+	/**
+	 * return the open cell of the position corresponding to a bit (the positions of a cell have consecutive bits)
+	 * @param index the index of the bit
+	 * @return the index of the open cell (see LevelContext.openCell)
+	 */
+	static int openCell(int index) {
+		return index >>> 2;
+	}
+
+	/**
+	 * return the index of the first position of the set with an index greater or equal to a given one
+	 * @param from index from which the search starts
+	 * @return the index of the position, -1 if there is none
+	 */
+	int nextIndex(int from) {
+		return BitBoard.nextSetBit(this.words, from);
+	}
+
+	public boolean add(Position pos) {
+		int index = this.index(pos);
+		boolean added = !BitBoard.get(this.words, index);
+		BitBoard.set(this.words, index);
+		return added;
+	}
+
+	public boolean remove(Position pos) {
+		int index = this.index(pos);
+		boolean removed = BitBoard.get(this.words, index);
+		BitBoard.clear(this.words, index);
+		return removed;
+	}
+
+	public boolean contains(Position pos) {
+		int index = this.index(pos);
+		return index >= 0 && BitBoard.get(this.words, index);
+	}
+
+	/**
+	 * test if the set contains a position on a given cell, whatever its direction
+	 * @param x row of the cell
+	 * @param y column of the cell
+	 * @return true if one of the positions is on the cell
+	 */
+	public boolean containsCell(int x, int y) {
+		int index = this.level.openCell(x * this.taille + y) * 4;
+		return index >= 0 && ((this.words[index >>> 6] >>> (index & 63)) & 0xF) != 0;
+	}
+
+	public void clear() {
+		Arrays.fill(this.words, 0);
+	}
+
+	public int size() {
+		return BitBoard.cardinality(this.words);
+	}
+
+	public boolean isEmpty() {
+		for(long word: this.words) {
+			if(word != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * return the first position of the set
+	 * @return the first position of the set
+	 */
+	public Position first() {
+		int index = this.nextIndex(0);
+		if(index < 0)
+			throw new NoSuchElementException();
+		return this.position(index);
+	}
+
+	/**
+	 * add all the positions of another set (union)
+	 * @param set the positions to add
+	 */
+	public void addAll(PositionSet set) {
+		for(int i = 0; i < this.words.length; i++) {
+			this.words[i] |= set.words[i];
+		}
+	}
+
+	/**
+	 * keep only the positions belonging to another set (intersection)
+	 * @param set the positions to keep
+	 */
+	public void retainAll(PositionSet set) {
+		for(int i = 0; i < this.words.length; i++) {
+			this.words[i] &= set.words[i];
+		}
+	}
+
+	/**
+	 * compare two sets word by word
+	 * @param set the set to compare with
+	 * @return 0 if the two sets are the same
+	 */
+	public int compareTo(PositionSet set) {
+		return BitBoard.compare(this.words, set.words);
+	}
+
+	public Iterator<Position> iterator() {
+		return new Iterator<Position>() {
+			private int next = PositionSet.this.nextIndex(0);
+
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			public Position next() {
+				if(this.next < 0)
+					throw new NoSuchElementException();
+				Position pos = PositionSet.this.position(this.next);
+				this.next = PositionSet.this.nextIndex(this.next + 1);
+				return pos;
+			}
+		};
+	}
+
+	public boolean equals(Object o) {
+		return o instanceof PositionSet && Arrays.equals(this.words, ((PositionSet) o).words);
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(this.words);
+	}
+
+	public String toString() {
+		String s = "[";
+		for(Position pos: this) {
+			s += pos + " ";
+		}
+		return s + "]";
+	}
+}
@@ -0,0 +1,54 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * class used to represent a transition function i.e., a set of possible belief
+ * states the agent may be in after performing an action. A result is immutable
+ * (its states are frozen) so that it can be shared by the transposition table
+ */
+class Result {
+	private final List<BeliefState> beliefStates;
+
+	/**
+	 * construct a new result, the states can't be modified in place any more
+	 *
+	 * @param states the set of states corresponding to the new belief state
+	 */
+	public Result(ArrayList<BeliefState> states) {
+		for(BeliefState state: states) {
+			state.freeze();
+		}
+		this.beliefStates = Collections.unmodifiableList(states);
+	}
+
+	/**
+	 * returns the number of belief states
+	 *
+	 * @return the number of belief states
+	 */
+	public int size() {
+		return this.beliefStates.size();
+	}
+
+	/**
+	 * return one of the belief state
+	 *
+	 * @param index the index of the belief state to return
+	 * @return the belief state to return
+	 */
+	public BeliefState getBeliefState(int index) {
+		return this.beliefStates.get(index);
+	}
+
+	/**
+	 * return the list of belief-states
+	 *
+	 * @return the list of belief-states (unmodifiable)
+	 */
+	public List<BeliefState> getBeliefStates() {
+		return this.beliefStates;
+	}
+}
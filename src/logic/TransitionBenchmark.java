@@ -0,0 +1,54 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * micro-benchmark of the transition kernel BeliefState.computeExtendsBeliefState(String) (the transposition table is bypassed).
+ * A fixed set of states is collected by random walks on the level, then all the actions are applied to them in rounds,
+ * printing the mean time per transition of each round.
+ * Run it with -XX:+PrintCompilation to check that the kernel is compiled by C2 (level 4 line for computeExtendsBeliefState):
+ * java -Djava.awt.headless=true -XX:+PrintCompilation -cp bin logic.TransitionBenchmark [level] [rounds]
+ */
+public class TransitionBenchmark {
+	private static final String[] ACTIONS = {PacManLauncher.UP, PacManLauncher.DOWN, PacManLauncher.LEFT, PacManLauncher.RIGHT};
+
+	public static void main(String[] args) {
+		int level = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		data.Map map = new data.Map(level, 0, Pacman.LIFE_START, Pacman.PALIER);
+		ArrayList<BeliefState> states = TransitionBenchmark.collectStates(map.getBeliefState(), 2000, new SplittableRandom(0));
+		long checksum = 0;
+		for(int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			for(BeliefState state: states) {
+				for(String action: ACTIONS) {
+					checksum += state.computeExtendsBeliefState(action).size();
+				}
+			}
+			long time = System.nanoTime() - start;
+			System.out.println("round " + round + ": " + (time / (states.size() * ACTIONS.length)) + " ns per transition");
+		}
+		System.out.println(states.size() + " states, checksum " + checksum);
+	}
+
+	/**
+	 * collect states reached by random walks from the initial state of the level
+	 * @param initial the initial state of the level
+	 * @param nbrOfStates number of states to collect
+	 * @param random generator used to choose the actions and the resulting states
+	 * @return the collected states
+	 */
+	private static ArrayList<BeliefState> collectStates(BeliefState initial, int nbrOfStates, SplittableRandom random) {
+		ArrayList<BeliefState> states = new ArrayList<BeliefState>();
+		BeliefState state = initial;
+		while(states.size() < nbrOfStates) {
+			if(state.getLife() <= 0 || states.size() % 50 == 0)
+				state = initial;
+			Result result = state.computeExtendsBeliefState(ACTIONS[random.nextInt(ACTIONS.length)]);
+			state = result.getBeliefState(random.nextInt(result.size()));
+			states.add(state);
+		}
+		return states;
+	}
+}
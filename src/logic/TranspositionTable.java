@@ -0,0 +1,81 @@
+package logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * bounded cache of the results of BeliefState.extendsBeliefState(String), indexed by a state and an action of Pacman.
+ * When the capacity is reached the least recently used state is removed.
+ * The results are immutable, so the same object is given to all the callers. Each level has its own table (LevelContext).
+ */
+public class TranspositionTable {
+	private final LinkedHashMap<BeliefState, Result[]> table;
+	private long hits, misses;
+
+	/**
+	 * construct an empty table
+	 * @param capacity maximal number of states kept in the table
+	 */
+	TranspositionTable(final int capacity) {
+		this.table = new LinkedHashMap<BeliefState, Result[]>(capacity * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<BeliefState, Result[]> eldest) {
+				return this.size() > capacity;
+			}
+		};
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * return the result stored for a given state and action
+	 * @param state the state from which Pacman performs the action
+	 * @param action index of the action (see BeliefState.directionIndex)
+	 * @return the stored result, null if there is none
+	 */
+	synchronized Result get(BeliefState state, int action) {
+		Result[] results = this.table.get(state);
+		Result result = results == null ? null : results[action];
+		if(result == null)
+			this.misses++;
+		else
+			this.hits++;
+		return result;
+	}
+
+	/**
+	 * store the result of an action performed from a given state
+	 * @param state the state from which Pacman performs the action (a copy is kept as key)
+	 * @param action index of the action (see BeliefState.directionIndex)
+	 * @param result the states resulting from the action
+	 */
+	synchronized void put(BeliefState state, int action, Result result) {
+		Result[] results = this.table.get(state);
+		if(results == null) {
+			results = new Result[4];
+			this.table.put(new BeliefState(state, false), results);
+		}
+		results[action] = result;
+	}
+
+	/**
+	 * return the number of calls to get which found a result
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * return the number of calls to get which found no result
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized String toString() {
+		return "transposition table: " + this.table.size() + " states, " + this.hits + " hits, " + this.misses + " misses";
+	}
+}
@@ -45,6 +45,8 @@ public class Canvas
 	private JMenuBar jmb;
 	private JMenu menu;
 	private JMenuItem manual, ai;
+	private JMenu policies;
+	private volatile String selectedPolicy;
 	private CanvasPane canvas;
 	private Graphics2D graphic;
 	private Color backgroundColor;
@@ -101,6 +103,41 @@ public class Canvas
 	public boolean isAIdriven() {
 		return isAIdriven;
 	}
+
+	/**
+	 * Add to the Control menu the list of the policies the AI can play with
+	 * @param names the names of the policies
+	 * @param selected the name of the policy currently used
+	 */
+	public void setPolicies(List<String> names, String selected)
+	{
+		if(this.policies != null) {
+			this.menu.remove(this.policies);
+		}
+		this.policies = new JMenu("Policy");
+		ButtonGroup group = new ButtonGroup();
+		for(String name : names) {
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem(name, name.equals(selected));
+			item.addActionListener(e -> this.policyPressed(name));
+			group.add(item);
+			this.policies.add(item);
+		}
+		this.menu.add(this.policies);
+		this.selectedPolicy = selected;
+	}
+
+	public void policyPressed(String name) {
+		this.selectedPolicy = name;
+		this.isAIdriven = true;
+	}
+
+	/**
+	 * Return the policy chosen in the Control menu
+	 * @return the name of the policy, null if no policy list has been set
+	 */
+	public String getSelectedPolicy() {
+		return selectedPolicy;
+	}
 	
 	/**
 	 * Check whether the UP key is currently pressed
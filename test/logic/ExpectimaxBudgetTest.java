@@ -0,0 +1,78 @@
+package logic;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * test of the time budget of ExpectimaxAI: headless games are played with the planner, and the time taken by each call to decide
+ * (minus the garbage collections that happened during the call) must stay within the budget plus a small tolerance.
+ * The first games only warm up the JIT compiler (with a single processor, the compiler threads take the processor from the
+ * search while they run); the check is made on the 95th percentile, so that a rare preemption does not fail the test.
+ * Run it from the root of the project: java -Djava.awt.headless=true -cp bin logic.ExpectimaxBudgetTest [budget ms]
+ */
+public class ExpectimaxBudgetTest {
+	/** time allowed above the budget, in nanoseconds */
+	private static final long TOLERANCE = 2000000L;
+	/** number of moves of each game */
+	private static final int MOVES = 300;
+	/** number of games played before the measure */
+	private static final int WARM_UP = 4;
+
+	public static void main(String[] args) {
+		long budget = (args.length > 0 ? Long.parseLong(args[0]) : 5) * 1000000L;
+		ArrayList<Long> latencies = new ArrayList<Long>();
+		PolicyRegistry.register("timed-expectimax", seed -> new TimedPolicy(new ExpectimaxAI(budget), latencies));
+		for(int game = 0; game < WARM_UP + 2; game++) {
+			if(game == WARM_UP)
+				latencies.clear();
+			new HeadlessGame("timed-expectimax", budget, game % 2 == 0 ? 0 : 20, game).play(MOVES);//tous les etats visibles, puis 20 particules
+		}
+		long[] sorted = new long[latencies.size()];
+		for(int i = 0; i < sorted.length; i++) {
+			sorted[i] = latencies.get(i);
+		}
+		Arrays.sort(sorted);
+		long p50 = sorted[sorted.length / 2], p95 = sorted[(int)Math.ceil(sorted.length * 0.95) - 1], max = sorted[sorted.length - 1];
+		System.out.println(String.format("%d moves, budget %.1fms: p50 %.3fms p95 %.3fms max %.3fms",
+			sorted.length, budget / 1e6, p50 / 1e6, p95 / 1e6, max / 1e6));
+		if(p95 > budget + TOLERANCE)
+			throw new AssertionError("decide took " + p95 / 1e6 + "ms (95th percentile) for a budget of " + budget / 1e6 + "ms");
+		System.out.println("decide stays within the budget");
+	}
+
+	/**
+	 * policy recording the time taken by each move of another policy, minus the time spent in the garbage collections
+	 */
+	private static final class TimedPolicy implements PacmanPolicy {
+		private final PacmanPolicy policy;
+		private final ArrayList<Long> latencies;
+
+		TimedPolicy(PacmanPolicy policy, ArrayList<Long> latencies) {
+			this.policy = policy;
+			this.latencies = latencies;
+		}
+
+		public String decide(ArrayList<BeliefState> beliefStates, long budget) {
+			long gc = TimedPolicy.gcTime();
+			long start = System.nanoTime();
+			String action = this.policy.decide(beliefStates, budget);
+			long latency = System.nanoTime() - start - (TimedPolicy.gcTime() - gc) * 1000000L;
+			this.latencies.add(latency);
+			return action;
+		}
+
+		/**
+		 * return the time spent in the garbage collections since the start of the JVM
+		 * @return the time, in milliseconds
+		 */
+		private static long gcTime() {
+			long time = 0;
+			for(GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans()) {
+				time += Math.max(0, bean.getCollectionTime());
+			}
+			return time;
+		}
+	}
+}
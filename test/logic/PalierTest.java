@@ -0,0 +1,36 @@
+package logic;
+
+import view.Gomme;
+
+/**
+ * test of the life won at each palier in a headless game: the game starts a few gums below Pacman.PALIER and is played
+ * until the score crosses it, Pacman must then have one more life and the next palier must be kept by the next level.
+ * Run it from the root of the project: java -Djava.awt.headless=true -cp bin logic.PalierTest
+ */
+public class PalierTest {
+	/** number of gums eaten before the palier */
+	private static final int GUMS = 3;
+	/** lives of Pacman at the start of the game */
+	private static final int LIFE = 2;
+
+	public static void main(String[] args) {
+		HeadlessGame game = new HeadlessGame(PolicyRegistry.DEFAULT, 50000000L, 0, 1);
+		game.startLevel(1, Pacman.PALIER - GUMS * Gomme.SCORE_GOMME, LIFE, Pacman.PALIER);
+		int life = game.getLife();
+		while(game.getScore() < Pacman.PALIER) {
+			life = game.getLife();
+			if(!game.step())
+				throw new AssertionError("the level is over before the palier, score " + game.getScore());
+		}
+		System.out.println("score " + game.getScore() + ": " + life + " -> " + game.getLife() + " lives");
+		if(game.getLife() != life + 1)
+			throw new AssertionError("Pacman has " + game.getLife() + " lives after the palier instead of " + (life + 1));
+		if(game.getPalier() != 2 * Pacman.PALIER)
+			throw new AssertionError("the next palier is " + game.getPalier() + " instead of " + 2 * Pacman.PALIER);
+		life = game.getLife();
+		game.startLevel(2);
+		if(game.getLife() != life || game.getPalier() != 2 * Pacman.PALIER)
+			throw new AssertionError("the next level starts with " + game.getLife() + " lives and the palier " + game.getPalier());
+		System.out.println("Pacman wins a life at the palier");
+	}
+}